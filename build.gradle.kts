@@ -13,6 +13,14 @@ java {
 
 dependencies {
     implementation(libs.android.misc)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 mavenPublishing {
@@ -388,7 +388,7 @@ method_reference returns[MethodId value]
         | { declaring_class = $class_def::type; }
     )
     name=member_name proto=method_prototype
-    { $value = MethodId.of(declaring_class, $name.value, $proto.value); }
+    { $value = intern(MethodId.of(declaring_class, $name.value, $proto.value)); }
     ;
 
 field_reference returns[FieldId value]
@@ -398,7 +398,7 @@ field_reference returns[FieldId value]
         | { declaring_class = $class_def::type; }
     )
     name=member_name COLON type=nonvoid_type_descriptor
-    { $value = FieldId.of(declaring_class, $name.value, $type.value); }
+    { $value = intern(FieldId.of(declaring_class, $name.value, $type.value)); }
     ;
 
 enum_literal returns[FieldId value]
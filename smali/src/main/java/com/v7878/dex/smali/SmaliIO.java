@@ -1,6 +1,7 @@
 package com.v7878.dex.smali;
 
 import com.v7878.dex.immutable.Dex;
+import com.v7878.dex.immutable.IdPool;
 import com.v7878.dex.smali.parser.SmaliLexer;
 import com.v7878.dex.smali.parser.SmaliParser;
 
@@ -10,12 +11,18 @@ import org.antlr.v4.runtime.CommonTokenStream;
 
 public class SmaliIO {
     public static Dex parse(String smali) {
+        return parse(smali, null);
+    }
+
+    // Ids of the result are interned in the pool if it is not null
+    public static Dex parse(String smali, IdPool id_pool) {
         var stream = CharStreams.fromString(smali);
         var lexer = new SmaliLexer(stream);
         var tokens = new CommonTokenStream(lexer);
 
         var parser = new SmaliParser(tokens);
         parser.setErrorHandler(new BailErrorStrategy());
+        parser.setIdPool(id_pool);
 
         return parser.file().smali().dex;
     }
@@ -5,7 +5,10 @@ import com.v7878.collections.IntSet;
 import com.v7878.dex.Opcode;
 import com.v7878.dex.immutable.Annotation;
 import com.v7878.dex.immutable.FieldDef;
+import com.v7878.dex.immutable.FieldId;
+import com.v7878.dex.immutable.IdPool;
 import com.v7878.dex.immutable.MethodDef;
+import com.v7878.dex.immutable.MethodId;
 import com.v7878.dex.immutable.Parameter;
 import com.v7878.dex.immutable.ProtoId;
 import com.v7878.dex.immutable.TypeId;
@@ -61,10 +64,37 @@ public abstract class SmaliParserBase extends Parser {
         opcodesByName = Collections.unmodifiableMap(names);
     }
 
+    private IdPool id_pool;
+
     public SmaliParserBase(TokenStream input) {
         super(input);
     }
 
+    public IdPool getIdPool() {
+        return id_pool;
+    }
+
+    // Null disables interning
+    public void setIdPool(IdPool pool) {
+        id_pool = pool;
+    }
+
+    public TypeId intern(TypeId value) {
+        return id_pool == null ? value : id_pool.intern(value);
+    }
+
+    public ProtoId intern(ProtoId value) {
+        return id_pool == null ? value : id_pool.intern(value);
+    }
+
+    public FieldId intern(FieldId value) {
+        return id_pool == null ? value : id_pool.intern(value);
+    }
+
+    public MethodId intern(MethodId value) {
+        return id_pool == null ? value : id_pool.intern(value);
+    }
+
     public static Opcode opcode(String opname) {
         var opcode = opcodesByName.get(opname);
         if (opcode == null || opcode.isPayload()) {
@@ -106,7 +136,7 @@ public abstract class SmaliParserBase extends Parser {
         return transformText(token -> {
             token = unquote(token);
             try {
-                return TypeId.of(token);
+                return intern(TypeId.of(token));
             } catch (IllegalArgumentException e) {
                 return null;
             }
@@ -131,8 +161,8 @@ public abstract class SmaliParserBase extends Parser {
         return type.isVoid() ? null : type;
     }
 
-    public static ProtoId parseProto(String token) {
-        return ProtoId.of(unquote(token));
+    public ProtoId parseProto(String token) {
+        return intern(ProtoId.of(unquote(token)));
     }
 
     public boolean isRegister() {
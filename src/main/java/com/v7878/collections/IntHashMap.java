@@ -0,0 +1,197 @@
+package com.v7878.collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Open-addressing hash map with primitive int keys and linear probing.
+ * Null values are not permitted, a null slot marks an empty bucket
+ */
+public final class IntHashMap<E> {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+
+    public IntHashMap() {
+        this(0);
+    }
+
+    public IntHashMap(int expected_size) {
+        if (expected_size < 0) {
+            throw new IllegalArgumentException("negative size");
+        }
+        allocate(tableSizeFor(expected_size));
+    }
+
+    private static int tableSizeFor(int expected_size) {
+        // Load factor is 0.75
+        long needed = (long) expected_size * 4 / 3 + 1;
+        if (needed >= MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        threshold = capacity == MAX_CAPACITY ? capacity - 1 : capacity / 4 * 3;
+    }
+
+    private static int hash(int key) {
+        // Offsets are usually aligned, so the low bits need to be mixed
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOfKeyRaw(int key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            if (values[i] == null) {
+                return ~i;
+            }
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean contains(int key) {
+        return indexOfKeyRaw(key) >= 0;
+    }
+
+    public E get(int key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int key, E valueIfKeyNotFound) {
+        int i = indexOfKeyRaw(key);
+        return i < 0 ? valueIfKeyNotFound : (E) values[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E put(int key, E value) {
+        Objects.requireNonNull(value);
+        int i = indexOfKeyRaw(key);
+        if (i >= 0) {
+            Object last = values[i];
+            values[i] = value;
+            return (E) last;
+        }
+        if (size >= threshold) {
+            if (keys.length == MAX_CAPACITY) {
+                throw new IllegalStateException("Map is too large");
+            }
+            rehash(keys.length << 1);
+            i = indexOfKeyRaw(key);
+        }
+        i = ~i;
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E remove(int key) {
+        int i = indexOfKeyRaw(key);
+        if (i < 0) {
+            return null;
+        }
+        Object last = values[i];
+        // Backward shift deletion, no tombstones are required
+        int mask = keys.length - 1;
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int home = hash(keys[j]) & mask;
+            // Move the entry if its home bucket is not in (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = null;
+        size--;
+        return (E) last;
+    }
+
+    private void rehash(int new_capacity) {
+        int[] old_keys = keys;
+        Object[] old_values = values;
+        allocate(new_capacity);
+        int mask = new_capacity - 1;
+        for (int i = 0; i < old_keys.length; i++) {
+            Object value = old_values[i];
+            if (value != null) {
+                int key = old_keys[i];
+                int j = hash(key) & mask;
+                while (values[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = key;
+                values[j] = value;
+            }
+        }
+    }
+
+    public void ensureCapacity(int min_size) {
+        int capacity = tableSizeFor(min_size);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "{}";
+        }
+        StringBuilder buffer = new StringBuilder(size * 28);
+        buffer.append('{');
+        boolean first = true;
+        for (int i = 0; i < keys.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (!first) {
+                buffer.append(", ");
+            }
+            first = false;
+            buffer.append(keys[i]);
+            buffer.append('=');
+            buffer.append(value == this ? "(this)" : value);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+}
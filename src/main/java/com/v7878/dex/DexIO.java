@@ -10,18 +10,35 @@ import com.v7878.dex.immutable.MethodHandleId;
 import com.v7878.dex.immutable.MethodId;
 import com.v7878.dex.immutable.ProtoId;
 import com.v7878.dex.immutable.TypeId;
-import com.v7878.dex.io.ByteArrayIO;
 import com.v7878.dex.io.ByteArrayInput;
+import com.v7878.dex.io.ByteBufferInput;
+import com.v7878.dex.io.PagedIO;
+import com.v7878.dex.io.RandomIO;
+import com.v7878.dex.io.RandomInput;
 import com.v7878.dex.raw.DexBalancer;
 import com.v7878.dex.raw.DexReader;
 import com.v7878.dex.raw.DexWriter;
 import com.v7878.dex.raw.SharedData;
 import com.v7878.dex.util.EmptyArrays;
-
+import com.v7878.dex.util.ParallelUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public final class DexIO {
     private DexIO() {
@@ -35,6 +52,32 @@ public final class DexIO {
         int offset();
     }
 
+    /**
+     * Class definition without members, annotations and code.
+     * Member counts are the sizes of the class data lists,
+     * code_units is the total instruction size of all methods in 16-bit units
+     */
+    public record ClassSummary(TypeId type, int access_flags, TypeId superclass,
+                               List<TypeId> interfaces, int static_fields,
+                               int instance_fields, int direct_methods,
+                               int virtual_methods, long code_units) {
+        public static ClassSummary of(ClassDef clazz) {
+            long code_units = 0;
+            for (var method : clazz.getMethods()) {
+                var implementation = method.getImplementation();
+                if (implementation == null) continue;
+                for (var insn : implementation.getInstructions()) {
+                    code_units += insn.getUnitCount();
+                }
+            }
+            return new ClassSummary(clazz.getType(), clazz.getAccessFlags(),
+                    clazz.getSuperclass(), clazz.getInterfaces(),
+                    clazz.getStaticFields().size(), clazz.getInstanceFields().size(),
+                    clazz.getDirectMethods().size(), clazz.getVirtualMethods().size(),
+                    code_units);
+        }
+    }
+
     public interface DexReaderCache {
         private static <T> T getValue(List<T> section, int index, String name) {
             checkIndex(index, section.size(), name);
@@ -117,6 +160,79 @@ public final class DexIO {
             return getValue(getClasses(), index, "class");
         }
 
+        // Operations on strings that do not need the decoded value,
+        //  the reader performs them directly on the encoded data
+
+        default int compareString(int index, String value) {
+            return getString(index).compareTo(value);
+        }
+
+        default boolean stringEquals(int index, String value) {
+            return getString(index).equals(value);
+        }
+
+        default boolean stringStartsWith(int index, String prefix) {
+            return getString(index).startsWith(prefix);
+        }
+
+        // Same as getString(index).hashCode()
+        default int stringHashCode(int index) {
+            return getString(index).hashCode();
+        }
+
+        // Returns -1 if there is no such string
+        default int findStringIndex(String value) {
+            Objects.requireNonNull(value);
+            return getStrings().indexOf(value);
+        }
+
+        // Returns -1 if there is no such type
+        default int findTypeIndex(String descriptor) {
+            Objects.requireNonNull(descriptor);
+            var types = getTypes();
+            for (int i = 0; i < types.size(); i++) {
+                if (types.get(i).getDescriptor().equals(descriptor)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Returns -1 if there is no such class
+        default int findClassIndex(String descriptor) {
+            Objects.requireNonNull(descriptor);
+            var classes = getClasses();
+            for (int i = 0; i < classes.size(); i++) {
+                if (classes.get(i).getType().getDescriptor().equals(descriptor)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Reads the class definition without building its {@link ClassDef},
+         * the result is not cached
+         */
+        default ClassSummary getClassSummary(int index) {
+            return ClassSummary.of(getClass(index));
+        }
+
+        default List<ClassSummary> getClassSummaries() {
+            int count = getClassCount();
+            return new AbstractList<>() {
+                @Override
+                public ClassSummary get(int index) {
+                    return getClassSummary(index);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
         default MethodHandleId getMethodHandle(int index) {
             return getValue(getMethodHandles(), index, "method handle");
         }
@@ -162,20 +278,51 @@ public final class DexIO {
         }
     }
 
-    public static DexReaderCache readCache(ReadOptions options, byte[] data,
-                                           int data_offset, int header_offset) {
+    private static MappedByteBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File is too large: " + size);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        // The mapping remains valid after the channel is closed
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel);
+        }
+    }
+
+    private static DexReaderCache readCache(ReadOptions options, RandomInput data,
+                                            int data_offset, int header_offset) {
         Objects.requireNonNull(options);
-        var input = new ByteArrayInput(data).duplicateAt(data_offset).markAsStart();
+        var input = data.duplicateAt(data_offset).markAsStart();
         return new DexReader(options, input, header_offset);
     }
 
+    public static DexReaderCache readCache(ReadOptions options, byte[] data,
+                                           int data_offset, int header_offset) {
+        return readCache(options, new ByteArrayInput(data), data_offset, header_offset);
+    }
+
+    public static DexReaderCache readCache(ReadOptions options, ByteBuffer data,
+                                           int data_offset, int header_offset) {
+        return readCache(options, new ByteBufferInput(data), data_offset, header_offset);
+    }
+
+    public static DexReaderCache readCache(ReadOptions options, FileChannel channel) throws IOException {
+        return readCache(options, map(channel), 0, 0);
+    }
+
+    public static DexReaderCache readCache(ReadOptions options, Path path) throws IOException {
+        return readCache(options, map(path), 0, 0);
+    }
+
     public static DexReaderCache readCache(byte[] data) {
         return readCache(ReadOptions.defaultOptions(), data, 0, 0);
     }
 
-    public static Dex read(ReadOptions options, byte[] data,
-                           int data_offset, int header_offset, int[] ids) {
-        var reader = readCache(options, data, data_offset, header_offset);
+    private static Dex read(DexReaderCache reader, int[] ids) {
         var classes = reader.getClasses();
         if (ids == null) {
             return Dex.of(classes);
@@ -187,32 +334,81 @@ public final class DexIO {
         return Dex.of(out);
     }
 
+    public static Dex read(ReadOptions options, byte[] data,
+                           int data_offset, int header_offset, int[] ids) {
+        return read(readCache(options, data, data_offset, header_offset), ids);
+    }
+
+    public static Dex read(ReadOptions options, ByteBuffer data,
+                           int data_offset, int header_offset, int[] ids) {
+        return read(readCache(options, data, data_offset, header_offset), ids);
+    }
+
     public static Dex read(ReadOptions options, byte[] data,
                            int data_offset, int header_offset) {
         return read(options, data, data_offset, header_offset, null);
     }
 
+    public static Dex read(ReadOptions options, ByteBuffer data,
+                           int data_offset, int header_offset) {
+        return read(options, data, data_offset, header_offset, null);
+    }
+
+    public static Dex read(ReadOptions options, Path path) throws IOException {
+        return read(options, map(path), 0, 0);
+    }
+
     public static Dex read(byte[] data) {
         return read(ReadOptions.defaultOptions(), data, 0, 0);
     }
 
-    public static DexReaderCache[] readDexContainerCache(ReadOptions options, byte[] data, int data_offset) {
+    private static InvalidDexFile containerError(int index, int header_offset, InvalidDexFile cause) {
+        return new InvalidDexFile(String.format("Invalid dex file #%d at offset %d in container",
+                index, header_offset), cause);
+    }
+
+    private static DexReader[] readDexContainerReaders(ReadOptions options, RandomInput data, int data_offset) {
         Objects.requireNonNull(options);
-        var input = new ByteArrayInput(data).duplicateAt(data_offset).markAsStart();
+        var input = data.duplicateAt(data_offset).markAsStart();
         var readers = new ArrayList<DexReader>();
         int header_offset = 0;
         while (header_offset != input.size()) {
-            var reader = new DexReader(options, input, header_offset);
+            DexReader reader;
+            try {
+                reader = new DexReader(options, input, header_offset);
+            } catch (InvalidDexFile ex) {
+                throw containerError(readers.size(), header_offset, ex);
+            }
             readers.add(reader);
             header_offset += reader.getFileSize();
         }
-        return readers.toArray(EmptyArrays.DEX_READER_CACHE);
+        return readers.toArray(new DexReader[0]);
+    }
+
+    private static DexReaderCache[] readDexContainerCache(ReadOptions options, RandomInput data, int data_offset) {
+        DexReaderCache[] readers = readDexContainerReaders(options, data, data_offset);
+        return readers.length == 0 ? EmptyArrays.DEX_READER_CACHE : readers;
+    }
+
+    public static DexReaderCache[] readDexContainerCache(ReadOptions options, byte[] data, int data_offset) {
+        return readDexContainerCache(options, new ByteArrayInput(data), data_offset);
+    }
+
+    public static DexReaderCache[] readDexContainerCache(ReadOptions options, ByteBuffer data, int data_offset) {
+        return readDexContainerCache(options, new ByteBufferInput(data), data_offset);
+    }
+
+    public static DexReaderCache[] readDexContainerCache(ReadOptions options, FileChannel channel) throws IOException {
+        return readDexContainerCache(options, map(channel), 0);
+    }
+
+    public static DexReaderCache[] readDexContainerCache(ReadOptions options, Path path) throws IOException {
+        return readDexContainerCache(options, map(path), 0);
     }
 
     //TODO: public static Dex[] readDexContainer(ReadOptions options, byte[] data, int[][] ids) {}
 
-    public static Dex[] readDexContainer(ReadOptions options, byte[] data, int data_offset) {
-        var readers = readDexContainerCache(options, data, data_offset);
+    private static Dex[] readDexContainer(DexReaderCache[] readers) {
         var out = new Dex[readers.length];
         for (int i = 0; i < out.length; i++) {
             out[i] = Dex.of(readers[i].getClasses());
@@ -220,6 +416,106 @@ public final class DexIO {
         return out;
     }
 
+    public static Dex[] readDexContainer(ReadOptions options, byte[] data, int data_offset) {
+        return readDexContainer(readDexContainerCache(options, data, data_offset));
+    }
+
+    public static Dex[] readDexContainer(ReadOptions options, ByteBuffer data, int data_offset) {
+        return readDexContainer(readDexContainerCache(options, data, data_offset));
+    }
+
+    public static Dex[] readDexContainer(ReadOptions options, Path path) throws IOException {
+        return readDexContainer(readDexContainerCache(options, path));
+    }
+
+    private static Dex[] readParallel(DexReader[] readers, Executor executor) {
+        var results = new ClassDef[readers.length][];
+        var tasks = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < readers.length; i++) {
+            var classes = readers[i].getClasses();
+            int count = classes.size();
+            var out = results[i] = new ClassDef[count];
+            ParallelUtils.submitRanges(tasks, count, ParallelUtils.chunkSize(count),
+                    executor, (from, to) -> {
+                        for (int j = from; j < to; j++) {
+                            out[j] = classes.get(j);
+                        }
+                    });
+        }
+        ParallelUtils.joinAll(tasks);
+        var out = new Dex[readers.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Dex.of(results[i]);
+        }
+        return out;
+    }
+
+    private static ReadOptions parallelOptions(ReadOptions options) {
+        // Checksums are verified by the reader constructor before decoding starts,
+        //  otherwise corrupted data could fail decoding with an arbitrary exception first
+        return options.withConcurrentAccess(true);
+    }
+
+    private static Dex readParallel(ReadOptions options, RandomInput data, int data_offset,
+                                    int header_offset, Executor executor) {
+        Objects.requireNonNull(options);
+        var input = data.duplicateAt(data_offset).markAsStart();
+        var reader = new DexReader(parallelOptions(options), input, header_offset);
+        return readParallel(new DexReader[]{reader}, executor)[0];
+    }
+
+    /**
+     * Decodes class definitions in chunks on the given executor,
+     * the resulting {@link Dex} keeps the original class order
+     */
+    public static Dex readParallel(ReadOptions options, byte[] data,
+                                   int data_offset, int header_offset, Executor executor) {
+        return readParallel(options, new ByteArrayInput(data), data_offset, header_offset, executor);
+    }
+
+    public static Dex readParallel(ReadOptions options, ByteBuffer data,
+                                   int data_offset, int header_offset, Executor executor) {
+        return readParallel(options, new ByteBufferInput(data), data_offset, header_offset, executor);
+    }
+
+    public static Dex readParallel(ReadOptions options, byte[] data, Executor executor) {
+        return readParallel(options, data, 0, 0, executor);
+    }
+
+    public static Dex readParallel(ReadOptions options, byte[] data) {
+        return readParallel(options, data, ForkJoinPool.commonPool());
+    }
+
+    public static Dex readParallel(ReadOptions options, Path path, Executor executor) throws IOException {
+        return readParallel(options, map(path), 0, 0, executor);
+    }
+
+    private static Dex[] readDexContainerParallel(ReadOptions options, RandomInput data,
+                                                  int data_offset, Executor executor) {
+        Objects.requireNonNull(options);
+        var readers = readDexContainerReaders(parallelOptions(options), data, data_offset);
+        return readParallel(readers, executor);
+    }
+
+    public static Dex[] readDexContainerParallel(ReadOptions options, byte[] data,
+                                                 int data_offset, Executor executor) {
+        return readDexContainerParallel(options, new ByteArrayInput(data), data_offset, executor);
+    }
+
+    public static Dex[] readDexContainerParallel(ReadOptions options, ByteBuffer data,
+                                                 int data_offset, Executor executor) {
+        return readDexContainerParallel(options, new ByteBufferInput(data), data_offset, executor);
+    }
+
+    public static Dex[] readDexContainerParallel(ReadOptions options, byte[] data, int data_offset) {
+        return readDexContainerParallel(options, data, data_offset, ForkJoinPool.commonPool());
+    }
+
+    public static Dex[] readDexContainerParallel(ReadOptions options, Path path,
+                                                 Executor executor) throws IOException {
+        return readDexContainerParallel(options, map(path), 0, executor);
+    }
+
     public static int balance(WriteOptions options, List<ClassDef> classes,
                               List<Dex> dexes, boolean last) {
         return DexBalancer.balance(classes, dexes, options, last);
@@ -237,22 +533,68 @@ public final class DexIO {
         return Collections.unmodifiableList(dexes);
     }
 
-    public static byte[] write(WriteOptions options, Dex data) {
+    private static void write(WriteOptions options, Dex data, RandomIO io) {
         Objects.requireNonNull(options);
         Objects.requireNonNull(data);
-        var io = new ByteArrayIO();
         var strings = new SharedData();
         DexWriter writer = new DexWriter(options, strings, io, data, 0);
         writer.writeData(writer.getMainEnd(), true);
         writer.writeMain(writer.getFileSize());
+    }
+
+    // The output is kept in fixed-size pages, so it is never copied while
+    //  growing. The byte[] variants copy it once at the end, so the peak is
+    //  twice the output size. The stream variants hold the output once, as
+    //  the header comes first but its checksum depends on the whole file.
+    //  The file channel variants keep only a few pages in memory and patch
+    //  the file in place
+    public static byte[] write(WriteOptions options, Dex data) {
+        var io = new PagedIO();
+        write(options, data, io);
         return io.toByteArray();
     }
 
+    public static void write(WriteOptions options, Dex data, OutputStream out) throws IOException {
+        Objects.requireNonNull(out);
+        var io = new PagedIO();
+        write(options, data, io);
+        io.writeTo(out);
+    }
+
+    public static void write(WriteOptions options, Dex data, WritableByteChannel out) throws IOException {
+        Objects.requireNonNull(out);
+        var io = new PagedIO();
+        write(options, data, io);
+        io.writeTo(out);
+    }
+
+    /**
+     * Writes the file starting at the current position of the channel, which
+     * must be opened for both reading and writing, header and offsets are
+     * patched in place after the data is written
+     */
+    public static void write(WriteOptions options, Dex data, FileChannel out) throws IOException {
+        var io = new PagedIO(out);
+        try {
+            write(options, data, io);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        io.flush();
+    }
+
+    public static void write(WriteOptions options, Dex data, Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(options, data, channel);
+        }
+    }
+
     public static byte[] write(Dex data) {
         return write(WriteOptions.defaultOptions(), data);
     }
 
-    public static byte[] writeDexContainer(WriteOptions options, Dex... data) {
+    private static void writeDexContainer(WriteOptions options, RandomIO io, Dex... data) {
         Objects.requireNonNull(data);
         var version = options.getDexVersion();
         if (!version.isDexContainer()) {
@@ -260,7 +602,6 @@ public final class DexIO {
                     "Illegal dex container version " + version);
         }
         for (var dex : data) Objects.requireNonNull(dex);
-        var io = new ByteArrayIO();
         var strings = new SharedData();
         var writers = new DexWriter[data.length];
         int header_offset = 0;
@@ -272,6 +613,43 @@ public final class DexIO {
         for (var writer : writers) {
             writer.writeMain(header_offset);
         }
+    }
+
+    public static byte[] writeDexContainer(WriteOptions options, Dex... data) {
+        var io = new PagedIO();
+        writeDexContainer(options, io, data);
         return io.toByteArray();
     }
+
+    public static void writeDexContainer(WriteOptions options, OutputStream out, Dex... data) throws IOException {
+        Objects.requireNonNull(out);
+        var io = new PagedIO();
+        writeDexContainer(options, io, data);
+        io.writeTo(out);
+    }
+
+    public static void writeDexContainer(WriteOptions options, WritableByteChannel out, Dex... data) throws IOException {
+        Objects.requireNonNull(out);
+        var io = new PagedIO();
+        writeDexContainer(options, io, data);
+        io.writeTo(out);
+    }
+
+    // Same requirements as for write(WriteOptions, Dex, FileChannel)
+    public static void writeDexContainer(WriteOptions options, FileChannel out, Dex... data) throws IOException {
+        var io = new PagedIO(out);
+        try {
+            writeDexContainer(options, io, data);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        io.flush();
+    }
+
+    public static void writeDexContainer(WriteOptions options, Path path, Dex... data) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeDexContainer(options, channel, data);
+        }
+    }
 }
@@ -1,14 +1,20 @@
 package com.v7878.dex;
 
-import com.v7878.collections.IntMap;
-
 import java.util.ArrayList;
-import java.util.EnumMap;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Opcodes {
-    private final IntMap<Opcode> opcodesByValue;
-    private final EnumMap<Opcode, Integer> opcodeValues;
+    private record Key(DexVersion dex, int api, boolean art, boolean odex) {
+    }
+
+    private static final ConcurrentHashMap<Key, Opcodes> CACHE = new ConcurrentHashMap<>();
+
+    // Indexed by raw opcode value
+    private final Opcode[] opcodesByValue;
+    // Indexed by opcode ordinal, -1 if the opcode is not supported
+    private final int[] opcodeValues;
     private final DexVersion dex;
     private final int api;
     private final boolean art;
@@ -21,25 +27,36 @@ public final class Opcodes {
         this.odex = odex;
 
         var opcodes = Opcode.values();
-        opcodeValues = new EnumMap<>(Opcode.class);
-        opcodesByValue = new IntMap<>(opcodes.length);
+        opcodeValues = new int[opcodes.length];
+        Arrays.fill(opcodeValues, -1);
 
+        int max_value = -1;
         for (var opcode : opcodes) {
             Integer value = opcode.getValue(dex, api, art, odex);
             if (value != null) {
-                opcodeValues.put(opcode, value);
-                opcodesByValue.put(value, opcode);
+                opcodeValues[opcode.ordinal()] = value;
+                max_value = Math.max(max_value, value);
+            }
+        }
+
+        opcodesByValue = new Opcode[max_value + 1];
+        for (var opcode : opcodes) {
+            int value = opcodeValues[opcode.ordinal()];
+            if (value >= 0) {
+                opcodesByValue[value] = opcode;
             }
         }
     }
 
     public static Opcodes of(DexVersion dexVersion, int targetApi,
                              boolean targetForArt, boolean allowOdexInstructions) {
-        return new Opcodes(dexVersion, targetApi, targetForArt, allowOdexInstructions);
+        // Instances are immutable, so they can be shared between readers and writers
+        return CACHE.computeIfAbsent(new Key(dexVersion, targetApi, targetForArt, allowOdexInstructions),
+                key -> new Opcodes(key.dex(), key.api(), key.art(), key.odex()));
     }
 
     public Opcode getOpcodeByValue(int value) {
-        var out = opcodesByValue.get(value);
+        var out = value >= 0 && value < opcodesByValue.length ? opcodesByValue[value] : null;
         if (out == null) {
             var candidates = new ArrayList<Opcode>();
             for (var op : Opcode.values()) {
@@ -62,8 +79,8 @@ public final class Opcodes {
 
     public int getOpcodeValue(Opcode opcode) {
         Objects.requireNonNull(opcode);
-        var out = opcodeValues.get(opcode);
-        if (out == null) {
+        var out = opcodeValues[opcode.ordinal()];
+        if (out < 0) {
             var constraint = opcode.getConstraint();
             throw new IllegalArgumentException(String.format(
                     "Constraints for opcode %s (%s) do not allow obtaining int value with dex=%s, api=%d, art=%b, odex=%b",
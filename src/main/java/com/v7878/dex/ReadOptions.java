@@ -1,22 +1,116 @@
 package com.v7878.dex;
 
+import com.v7878.dex.immutable.IdPool;
+
 public final class ReadOptions extends DexOptions<ReadOptions> {
-    ReadOptions(int api, boolean art, boolean odex, boolean hiddenapi, boolean debug_info) {
+    // 0 means unlimited
+    private final int cache_limit;
+    private final boolean concurrent;
+    private final boolean verify;
+    // May be null
+    private final IdPool id_pool;
+    private final boolean lazy_code;
+
+    ReadOptions(int cache_limit, boolean concurrent, boolean verify, IdPool id_pool, boolean lazy_code,
+                int api, boolean art, boolean odex, boolean hiddenapi, boolean debug_info) {
         super(api, art, odex, hiddenapi, debug_info);
+        this.cache_limit = cache_limit;
+        this.concurrent = concurrent;
+        this.verify = verify;
+        this.id_pool = id_pool;
+        this.lazy_code = lazy_code;
     }
 
     private ReadOptions() {
         super();
+        this.cache_limit = 0;
+        this.concurrent = false;
+        this.verify = false;
+        this.id_pool = null;
+        this.lazy_code = false;
+    }
+
+    @Override
+    public void validate() {
+        if (cache_limit < 0) {
+            throw new IllegalArgumentException("Negative cache limit: " + cache_limit);
+        }
+        super.validate();
     }
 
     @Override
     protected ReadOptions dup(int api, boolean art, boolean odex, boolean hiddenapi, boolean debug_info) {
-        return new ReadOptions(api, art, odex, hiddenapi, debug_info);
+        return new ReadOptions(cache_limit, concurrent, verify, id_pool, lazy_code, api, art, odex, hiddenapi, debug_info);
+    }
+
+    public int getOffsetCacheLimit() {
+        return cache_limit;
+    }
+
+    /**
+     * Maximum number of entries in each offset-keyed cache of the reader
+     * (type lists, annotations, code items, etc.), 0 means unlimited.
+     * A cache that reaches the limit is cleared and filled again
+     */
+    public ReadOptions withOffsetCacheLimit(int limit) {
+        return new ReadOptions(limit, concurrent, verify, id_pool, lazy_code, api, art, odex, hiddenapi, debug_info);
+    }
+
+    public boolean isConcurrentAccess() {
+        return concurrent;
+    }
+
+    /**
+     * Allows a single reader to be used from multiple threads simultaneously,
+     * at the cost of slightly slower cache access
+     */
+    public ReadOptions withConcurrentAccess(boolean concurrent) {
+        return new ReadOptions(cache_limit, concurrent, verify, id_pool, lazy_code, api, art, odex, hiddenapi, debug_info);
+    }
+
+    public boolean hasChecksumVerification() {
+        return verify;
+    }
+
+    /**
+     * Verifies the SHA-1 signature and Adler32 checksum of each dex file
+     * (including each header of a dex container) when it is opened,
+     * before any other data is parsed. Compact dex files and dex versions
+     * 009 and 013 are not supported, opening them with verification enabled
+     * fails with IllegalArgumentException
+     */
+    public ReadOptions withChecksumVerification(boolean verify) {
+        return new ReadOptions(cache_limit, concurrent, verify, id_pool, lazy_code, api, art, odex, hiddenapi, debug_info);
+    }
+
+    public IdPool getIdPool() {
+        return id_pool;
+    }
+
+    /**
+     * Pool used to intern strings and ids read from dex files,
+     * it can be shared between readers, builders and threads.
+     * Null disables interning
+     */
+    public ReadOptions withIdPool(IdPool id_pool) {
+        return new ReadOptions(cache_limit, concurrent, verify, id_pool, lazy_code, api, art, odex, hiddenapi, debug_info);
+    }
+
+    public boolean isLazyCodeDecoding() {
+        return lazy_code;
+    }
+
+    /**
+     * Defers decoding of instructions, try blocks and debug items of each method
+     * until its implementation is accessed. Lazy implementations keep a reference
+     * to the reader, which must allow concurrent access if they are used from
+     * multiple threads. Not supported for dex versions 009 and 013
+     */
+    public ReadOptions withLazyCodeDecoding(boolean lazy_code) {
+        return new ReadOptions(cache_limit, concurrent, verify, id_pool, lazy_code, api, art, odex, hiddenapi, debug_info);
     }
 
     public static ReadOptions defaultOptions() {
         return new ReadOptions();
     }
-
-    //TODO: verify checksum/signature option
-}
\ No newline at end of file
+}
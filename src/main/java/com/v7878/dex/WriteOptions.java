@@ -1,6 +1,7 @@
 package com.v7878.dex;
 
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public final class WriteOptions extends DexOptions<WriteOptions> {
     public enum StringFix {
@@ -12,14 +13,19 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
     private final StringFix rewrite;
     private final Integer compact_flags;
     private final boolean sort_defs;
+    private final boolean parallel;
+    // May be null, the common pool is used
+    private final Executor executor;
 
     WriteOptions(DexVersion dex_version, StringFix rewrite, Integer compact_flags, boolean sort_defs,
-                 int api, boolean art, boolean odex, boolean hiddenapi, boolean debug_info) {
+                 boolean parallel, Executor executor, int api, boolean art, boolean odex, boolean hiddenapi, boolean debug_info) {
         super(api, art, odex, hiddenapi, debug_info);
         this.dex_version = Objects.requireNonNull(dex_version);
         this.rewrite = Objects.requireNonNull(rewrite);
         this.compact_flags = compact_flags;
         this.sort_defs = sort_defs;
+        this.parallel = parallel;
+        this.executor = executor;
     }
 
     private WriteOptions() {
@@ -28,6 +34,8 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
         this.rewrite = StringFix.FIX_JUMBO;
         this.compact_flags = null;
         this.sort_defs = false;
+        this.parallel = false;
+        this.executor = null;
     }
 
     @Override
@@ -41,7 +49,7 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
 
     @Override
     protected WriteOptions dup(int api, boolean art, boolean odex, boolean hiddenapi, boolean debug_info) {
-        return new WriteOptions(dex_version, rewrite, compact_flags, sort_defs, api, art, odex, hiddenapi, debug_info);
+        return new WriteOptions(dex_version, rewrite, compact_flags, sort_defs, parallel, executor, api, art, odex, hiddenapi, debug_info);
     }
 
     public DexVersion getDexVersion() {
@@ -49,7 +57,7 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
     }
 
     public WriteOptions withDexVersion(DexVersion version) {
-        return new WriteOptions(version, rewrite, compact_flags, sort_defs, api, art, odex, hiddenapi, debug_info);
+        return new WriteOptions(version, rewrite, compact_flags, sort_defs, parallel, executor, api, art, odex, hiddenapi, debug_info);
     }
 
     public Integer getCDEXFlags() {
@@ -57,7 +65,7 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
     }
 
     public WriteOptions withCDEXFlags(Integer flags) {
-        return new WriteOptions(dex_version, rewrite, flags, sort_defs, api, art, odex, hiddenapi, debug_info);
+        return new WriteOptions(dex_version, rewrite, flags, sort_defs, parallel, executor, api, art, odex, hiddenapi, debug_info);
     }
 
     public boolean isClassSorting() {
@@ -65,7 +73,33 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
     }
 
     public WriteOptions withClassSorting(boolean sort) {
-        return new WriteOptions(dex_version, rewrite, compact_flags, sort, api, art, odex, hiddenapi, debug_info);
+        return new WriteOptions(dex_version, rewrite, compact_flags, sort, parallel, executor, api, art, odex, hiddenapi, debug_info);
+    }
+
+    public boolean isParallelWrite() {
+        return parallel;
+    }
+
+    /**
+     * Collects and encodes data on the parallel executor, the output
+     * is byte-identical to the sequential writer
+     */
+    public WriteOptions withParallelWrite(boolean parallel) {
+        return new WriteOptions(dex_version, rewrite, compact_flags, sort_defs, parallel, executor, api, art, odex, hiddenapi, debug_info);
+    }
+
+    // Returns null if the common fork-join pool is used
+    public Executor getParallelExecutor() {
+        return executor;
+    }
+
+    /**
+     * Enables parallel write on the given executor, null means the common
+     * fork-join pool. With an explicit executor strings are sorted
+     * sequentially, so no work is submitted to the common pool
+     */
+    public WriteOptions withParallelWrite(Executor executor) {
+        return new WriteOptions(dex_version, rewrite, compact_flags, sort_defs, true, executor, api, art, odex, hiddenapi, debug_info);
     }
 
     public StringFix getStringFix() {
@@ -73,7 +107,7 @@ public final class WriteOptions extends DexOptions<WriteOptions> {
     }
 
     public WriteOptions withStringFix(StringFix rewrite) {
-        return new WriteOptions(dex_version, rewrite, compact_flags, sort_defs, api, art, odex, hiddenapi, debug_info);
+        return new WriteOptions(dex_version, rewrite, compact_flags, sort_defs, parallel, executor, api, art, odex, hiddenapi, debug_info);
     }
 
     public static WriteOptions defaultOptions() {
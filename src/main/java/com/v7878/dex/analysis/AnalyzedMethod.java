@@ -30,6 +30,8 @@ import com.v7878.dex.analysis.Register.UninitializedRef;
 import com.v7878.dex.analysis.Register.WidePrimitive;
 import com.v7878.dex.analysis.RegisterLine.RegisterPair;
 import com.v7878.dex.immutable.CallSiteId;
+import com.v7878.dex.immutable.ClassDef;
+import com.v7878.dex.immutable.Dex;
 import com.v7878.dex.immutable.FieldId;
 import com.v7878.dex.immutable.MethodDef;
 import com.v7878.dex.immutable.MethodId;
@@ -59,11 +61,24 @@ import com.v7878.dex.immutable.bytecode.iface.TwoRegisterInstruction;
 import com.v7878.dex.immutable.bytecode.iface.VariableFiveRegisterInstruction;
 import com.v7878.dex.util.Converter;
 import com.v7878.dex.util.Formatter;
+import com.v7878.dex.util.ParallelUtils;
 
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.ToIntFunction;
 
+/**
+ * Register types of each position of a method, computed as a fixpoint
+ * over its basic blocks in reverse post-order. Registers are merged only
+ * at block starts, inside a block the state of the previous position
+ * replaces the old one, so states left over from earlier iterations
+ * are not joined into the result. This gives more precise types than
+ * merging at every position (for example int where conflict was reported
+ * before), so verification may report a different first error or none
+ */
 public final class AnalyzedMethod {
     private final TypeId declaring_class;
     private final MethodDef method;
@@ -72,6 +87,7 @@ public final class AnalyzedMethod {
     private final int last_offset;
     private final ProtoId call_proto;
     private final int register_count;
+    private ControlFlowGraph cfg;
 
     private AnalyzedMethod(TypeId declaring_class, MethodDef method,
                            MethodImplementation implementation,
@@ -110,6 +126,10 @@ public final class AnalyzedMethod {
         return register_count;
     }
 
+    public ControlFlowGraph getControlFlowGraph() {
+        return cfg;
+    }
+
     private Position position(int address) {
         var out = positions.get(address);
         if (out == null) {
@@ -156,10 +176,11 @@ public final class AnalyzedMethod {
             throw new AnalysisException("Zero-length code");
         }
         var code_map = new IntMap<Position>(size);
+        var empty_line = new RegisterLine(regs);
         int offset = 0;
         for (int i = 0; i < instructions.size(); i++) {
             var value = instructions.get(i);
-            code_map.append(offset, new Position(value, regs, i, offset));
+            code_map.append(offset, new Position(value, empty_line, i, offset));
             offset += value.getUnitCount();
         }
         var method = new AnalyzedMethod(declaring_class,
@@ -171,6 +192,65 @@ public final class AnalyzedMethod {
         return method;
     }
 
+    public interface ResultConsumer {
+        /**
+         * Receives either the result or the error of analysis of the method,
+         * may be called simultaneously from multiple threads. The error is
+         * usually {@link AnalysisException}, but malformed code may also
+         * fail with other runtime exceptions
+         */
+        void accept(ClassDef clazz, MethodDef method,
+                    AnalyzedMethod result, RuntimeException error);
+    }
+
+    /**
+     * Analyzes all methods with implementation in chunks on the given executor
+     * and passes each result to the consumer as soon as it is ready.
+     * Results are not retained, so the consumer decides what stays in memory.
+     * Failure of one method does not stop analysis of the others, but
+     * exceptions thrown by the consumer are propagated.
+     * The resolver must be thread-safe
+     */
+    public static void analyzeAll(Dex dex, TypeResolver resolver, boolean verify,
+                                  Executor executor, ResultConsumer consumer) {
+        Objects.requireNonNull(dex);
+        Objects.requireNonNull(resolver);
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(consumer);
+        var classes = dex.getClasses();
+        var owners = new ArrayList<ClassDef>();
+        var methods = new ArrayList<MethodDef>();
+        for (var clazz : classes) {
+            for (var method : clazz.getMethods()) {
+                if (method.getImplementation() != null) {
+                    owners.add(clazz);
+                    methods.add(method);
+                }
+            }
+        }
+        int count = methods.size();
+        ParallelUtils.forEachRange(count, ParallelUtils.chunkSize(count),
+                executor, (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        var clazz = owners.get(i);
+                        var method = methods.get(i);
+                        AnalyzedMethod result;
+                        try {
+                            result = analyze(resolver, clazz.getType(), method, verify);
+                        } catch (RuntimeException ex) {
+                            consumer.accept(clazz, method, null, ex);
+                            continue;
+                        }
+                        consumer.accept(clazz, method, result, null);
+                    }
+                });
+    }
+
+    public static void analyzeAll(Dex dex, TypeResolver resolver,
+                                  boolean verify, ResultConsumer consumer) {
+        analyzeAll(dex, resolver, verify, ForkJoinPool.commonPool(), consumer);
+    }
+
     private void freeze() {
         positions.freeze();
         int count = positions.size();
@@ -941,14 +1021,46 @@ public final class AnalyzedMethod {
         }
     }
 
+    // Positions waiting for analysis, grouped by their basic blocks
+    private static final class Worklist {
+        private final ControlFlowGraph cfg;
+        private final BitSet positions;
+        private final BitSet blocks;
+
+        Worklist(ControlFlowGraph cfg, int count) {
+            this.cfg = cfg;
+            this.positions = new BitSet(count);
+            this.blocks = new BitSet(cfg.blockCount());
+        }
+
+        void add(int index) {
+            positions.set(index);
+            blocks.set(cfg.blockId(index));
+        }
+    }
+
     private void analyze(TypeResolver resolver, boolean verify) {
+        cfg = ControlFlowGraph.build(positions);
         int count = positions.size();
         BitSet touched = new BitSet(count);
         touched.set(0);
-        BitSet todo = new BitSet(count);
-        for (int i = 0; i >= 0; i = todo.nextSetBit(0)) {
-            todo.clear(i);
-            analyzePosition(resolver, touched, todo, i, verify);
+        var todo = new Worklist(cfg, count);
+        todo.add(0);
+        // Blocks are taken in reverse post-order, so predecessors
+        //  are usually analyzed before their successors
+        for (int id = 0; id >= 0; id = todo.blocks.nextSetBit(0)) {
+            var block = cfg.block(id);
+            int start = block.start(), end = block.end();
+            for (int i = todo.positions.nextSetBit(start);
+                 i >= 0 && i < end; i = todo.positions.nextSetBit(i)) {
+                todo.positions.clear(i);
+                analyzePosition(resolver, touched, todo, i, verify);
+            }
+            // Back edge to the beginning of the same block
+            int next = todo.positions.nextSetBit(start);
+            if (next < 0 || next >= end) {
+                todo.blocks.clear(id);
+            }
         }
     }
 
@@ -1015,23 +1127,27 @@ public final class AnalyzedMethod {
         );
     }
 
-    private static void merge(TypeResolver resolver, BitSet touched, BitSet todo,
+    private static void merge(TypeResolver resolver, BitSet touched, Worklist todo,
                               Position current, Position target,
                               RegisterLine line, boolean reachable_from_current) {
         int index = target.index();
         if (touched.get(index)) {
-            if (target.merge(resolver, line)) {
-                todo.set(index);
+            // Inside a basic block the only predecessor is the previous position,
+            //  so its registers replace the old ones instead of being merged with them
+            boolean changed = todo.cfg.isBlockStart(index) ?
+                    target.merge(resolver, line) : target.replace(line);
+            if (changed) {
+                todo.add(index);
             }
         } else {
             target.copy(line);
-            todo.set(index);
+            todo.add(index);
             touched.set(index);
         }
         if (current.isRuntimeReachable()) {
             if (reachable_from_current && !target.isRuntimeReachable()) {
                 target.setRuntimeReachable();
-                todo.set(index);
+                todo.add(index);
             }
         }
     }
@@ -1308,7 +1424,7 @@ public final class AnalyzedMethod {
 
     // At this stage, there is no need to check the boundaries of
     // register indices, as they have already been checked earlier
-    private void analyzePosition(TypeResolver resolver, BitSet touched, BitSet todo, int index, boolean verify) {
+    private void analyzePosition(TypeResolver resolver, BitSet touched, Worklist todo, int index, boolean verify) {
         var current = positionAt(index);
         int address = current.address();
         var insn = current.instruction();
@@ -0,0 +1,215 @@
+package com.v7878.dex.analysis;
+
+import com.v7878.collections.IntMap;
+import com.v7878.dex.util.Formatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Basic blocks of a method built from the transitions of its positions.
+ * Blocks are numbered in reverse post-order starting from the entry block,
+ * structurally unreachable positions do not belong to any block
+ */
+public final class ControlFlowGraph {
+    public static final class BasicBlock {
+        private final int start, end;
+        private int id;
+        private final List<BasicBlock> successors;
+        private final List<BasicBlock> predecessors;
+
+        private BasicBlock(int start, int end) {
+            this.start = start;
+            this.end = end;
+            this.id = -1;
+            this.successors = new ArrayList<>();
+            this.predecessors = new ArrayList<>();
+        }
+
+        // Reverse post-order number
+        public int id() {
+            return id;
+        }
+
+        // Index of the first position (inclusive)
+        public int start() {
+            return start;
+        }
+
+        // Index after the last position (exclusive)
+        public int end() {
+            return end;
+        }
+
+        public int size() {
+            return end - start;
+        }
+
+        public List<BasicBlock> successors() {
+            return Collections.unmodifiableList(successors);
+        }
+
+        public List<BasicBlock> predecessors() {
+            return Collections.unmodifiableList(predecessors);
+        }
+
+        private void link(BasicBlock to) {
+            if (!successors.contains(to)) {
+                successors.add(to);
+                to.predecessors.add(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "B" + id + " [" + start + ", " + end + ")";
+        }
+    }
+
+    private final IntMap<Position> positions;
+    private final BasicBlock[] blocks;
+    // Block id of each position or -1
+    private final int[] block_ids;
+
+    private ControlFlowGraph(IntMap<Position> positions,
+                             BasicBlock[] blocks, int[] block_ids) {
+        this.positions = positions;
+        this.blocks = blocks;
+        this.block_ids = block_ids;
+    }
+
+    // Position continues the block of the previous one
+    private static boolean isContinuation(IntMap<Position> positions, int index) {
+        if (index == 0) return false;
+        var current = positions.valueAt(index);
+        var previous = positions.valueAt(index - 1);
+        if (current.predecessors.size() != 1 || previous.successors.size() != 1) {
+            return false;
+        }
+        // Both transitions can only be the same fallthrough edge
+        return current.predecessors.first().isFallThrough()
+                && previous.successors.first().isFallThrough();
+    }
+
+    /* package */
+    static ControlFlowGraph build(IntMap<Position> positions) {
+        int count = positions.size();
+        var by_start = new BasicBlock[count];
+        var owners = new BasicBlock[count];
+        BasicBlock block = null;
+        for (int i = 0; i < count; i++) {
+            if (!positions.valueAt(i).isStructurallyReachable()) {
+                block = null;
+                continue;
+            }
+            if (block == null || !isContinuation(positions, i)) {
+                int end = i + 1;
+                while (end < count && isContinuation(positions, end)) {
+                    end++;
+                }
+                block = new BasicBlock(i, end);
+                by_start[i] = block;
+            }
+            owners[i] = block;
+        }
+
+        for (var from : by_start) {
+            if (from == null) continue;
+            var last = positions.valueAt(from.end - 1);
+            for (var transition : last.successors) {
+                int target = positions.indexOfKey(transition.address());
+                from.link(owners[target]);
+            }
+        }
+
+        // Iterative depth-first search, post-order is filled from the end
+        var order = new BasicBlock[count];
+        int next = count;
+        var stack = new BasicBlock[count];
+        var edge = new int[count];
+        int depth = 0;
+        var entry = by_start[0];
+        entry.id = 0;
+        stack[depth++] = entry;
+        while (depth > 0) {
+            var top = stack[depth - 1];
+            if (edge[depth - 1] < top.successors.size()) {
+                var succ = top.successors.get(edge[depth - 1]++);
+                if (succ.id < 0) {
+                    succ.id = 0;
+                    edge[depth] = 0;
+                    stack[depth++] = succ;
+                }
+            } else {
+                depth--;
+                order[--next] = top;
+            }
+        }
+        var blocks = Arrays.copyOfRange(order, next, count);
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i].id = i;
+        }
+
+        var block_ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            block_ids[i] = owners[i] == null ? -1 : owners[i].id;
+        }
+        return new ControlFlowGraph(positions, blocks, block_ids);
+    }
+
+    public BasicBlock entry() {
+        return blocks[0];
+    }
+
+    // In reverse post-order
+    public List<BasicBlock> blocks() {
+        return Collections.unmodifiableList(Arrays.asList(blocks));
+    }
+
+    public int blockCount() {
+        return blocks.length;
+    }
+
+    public BasicBlock block(int id) {
+        return blocks[id];
+    }
+
+    /* package */ int blockId(int index) {
+        return block_ids[index];
+    }
+
+    /* package */ boolean isBlockStart(int index) {
+        int id = block_ids[index];
+        return id >= 0 && blocks[id].start == index;
+    }
+
+    // Returns null for unreachable positions
+    public BasicBlock blockOf(Position position) {
+        int index = position.index();
+        if (positions.valueAt(index) != position) {
+            throw new IllegalArgumentException("Position " + position + " is not part of this graph");
+        }
+        int id = block_ids[index];
+        return id < 0 ? null : blocks[id];
+    }
+
+    public Position first(BasicBlock block) {
+        return positions.valueAt(block.start);
+    }
+
+    public Position last(BasicBlock block) {
+        return positions.valueAt(block.end - 1);
+    }
+
+    public String describe() {
+        var out = new StringBuilder();
+        for (var block : blocks) {
+            out.append(block).append(' ')
+                    .append(Formatter.unsignedHex(first(block).address()))
+                    .append(" -> ").append(block.successors).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package com.v7878.dex.analysis;
+
+import static com.v7878.dex.DexConstants.ACC_INTERFACE;
+import static com.v7878.dex.immutable.TypeId.OBJECT;
+
+import com.v7878.dex.DexIO.DexReaderCache;
+import com.v7878.dex.immutable.ClassDef;
+import com.v7878.dex.immutable.Dex;
+import com.v7878.dex.immutable.TypeId;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolver backed by the class hierarchy of the given classes.
+ * Superclass relations are answered with pre/post-order intervals of the
+ * superclass tree and interface relations with per-class bitsets,
+ * so instanceOf requests take constant time. Results of join are cached.
+ * Types whose hierarchy is not fully known are answered with "I don't know".
+ * The resolver is immutable and can be used from multiple threads
+ */
+public final class HierarchyTypeResolver extends TypeResolver {
+    private static final class Node {
+        final TypeId type;
+        final TypeId superclass;
+        final List<TypeId> interfaces;
+        final boolean is_interface;
+
+        Node parent;
+        // Index in the interface bitsets or -1
+        int interface_id = -1;
+        // Interval of the subtree in the superclass tree, -1 if not in the tree
+        int pre = -1, post = -1;
+        // All implemented interfaces, including inherited ones
+        BitSet all_interfaces;
+        // Whether all superclasses are known
+        boolean chain_complete;
+        // Whether all supertypes are known
+        boolean complete;
+        // 0 - not visited, 1 - in progress, 2 - done
+        int state;
+
+        Node(TypeId type, TypeId superclass, List<TypeId> interfaces, boolean is_interface) {
+            this.type = type;
+            this.superclass = superclass;
+            this.interfaces = interfaces;
+            this.is_interface = is_interface;
+        }
+
+        boolean isSubclassOf(Node other) {
+            return other.pre <= pre && pre < other.post;
+        }
+    }
+
+    private static final BitSet NO_INTERFACES = new BitSet();
+    // ConcurrentHashMap does not allow null values
+    private static final TypeId UNKNOWN = TypeId.of("LUnknown;");
+
+    private final Map<TypeId, Node> nodes;
+    private final ConcurrentHashMap<Long, TypeId> joins;
+
+    private HierarchyTypeResolver(Map<TypeId, Node> nodes) {
+        this.nodes = nodes;
+        this.joins = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Builds resolver from the given classes. If a type is defined
+     * several times, the first definition is used, as the class loader does
+     */
+    public static HierarchyTypeResolver of(Iterable<ClassDef> classes) {
+        Objects.requireNonNull(classes);
+        var nodes = new HashMap<TypeId, Node>();
+        for (var clazz : classes) {
+            addNode(nodes, clazz.getType(), clazz.getAccessFlags(),
+                    clazz.getSuperclass(), clazz.getInterfaces());
+        }
+        return of(nodes);
+    }
+
+    private static void addNode(Map<TypeId, Node> nodes, TypeId type, int access_flags,
+                                TypeId superclass, List<TypeId> interfaces) {
+        if (nodes.containsKey(type)) return;
+        boolean is_interface = (access_flags & ACC_INTERFACE) != 0;
+        nodes.put(type, new Node(type, superclass, interfaces, is_interface));
+    }
+
+    private static HierarchyTypeResolver of(Map<TypeId, Node> nodes) {
+        // java.lang.Object is the root even if there is no boot classpath
+        nodes.computeIfAbsent(OBJECT, type -> new Node(type, null, List.of(), false));
+        build(nodes);
+        return new HierarchyTypeResolver(nodes);
+    }
+
+    public static HierarchyTypeResolver of(Dex... dexes) {
+        return of(null, List.of(dexes));
+    }
+
+    /**
+     * @param boot classes of the boot classpath, may be null
+     */
+    public static HierarchyTypeResolver of(Dex boot, List<Dex> dexes) {
+        var classes = new ArrayList<ClassDef>();
+        if (boot != null) {
+            classes.addAll(boot.getClasses());
+        }
+        for (var dex : dexes) {
+            classes.addAll(dex.getClasses());
+        }
+        return of(classes);
+    }
+
+    public static HierarchyTypeResolver of(DexReaderCache... dexes) {
+        return of(null, List.of(dexes));
+    }
+
+    /**
+     * Reads only class_def rows of the given dex files,
+     * class data and code are not decoded
+     *
+     * @param boot classes of the boot classpath, may be null
+     */
+    public static HierarchyTypeResolver of(DexReaderCache boot, List<DexReaderCache> dexes) {
+        var nodes = new HashMap<TypeId, Node>();
+        if (boot != null) {
+            addSummaries(nodes, boot);
+        }
+        for (var dex : dexes) {
+            addSummaries(nodes, dex);
+        }
+        return of(nodes);
+    }
+
+    private static void addSummaries(Map<TypeId, Node> nodes, DexReaderCache dex) {
+        for (var summary : dex.getClassSummaries()) {
+            addNode(nodes, summary.type(), summary.access_flags(),
+                    summary.superclass(), summary.interfaces());
+        }
+    }
+
+    private static void build(Map<TypeId, Node> nodes) {
+        var children = new HashMap<Node, List<Node>>();
+        var roots = new ArrayList<Node>();
+        int interface_count = 0;
+        for (var node : nodes.values()) {
+            if (node.is_interface) {
+                node.interface_id = interface_count++;
+            }
+            var parent = node.superclass == null ? null : nodes.get(node.superclass);
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                node.parent = parent;
+                children.computeIfAbsent(parent, unused -> new ArrayList<>()).add(node);
+            }
+        }
+
+        // Iterative depth-first numbering of the superclass tree,
+        //  classes with cyclic superclasses are not reachable from roots
+        int counter = 0;
+        var stack = new ArrayList<Node>();
+        var iterators = new ArrayList<Integer>();
+        for (var root : roots) {
+            root.pre = counter++;
+            stack.add(root);
+            iterators.add(0);
+            while (!stack.isEmpty()) {
+                int top = stack.size() - 1;
+                var node = stack.get(top);
+                var list = children.getOrDefault(node, List.of());
+                int next = iterators.get(top);
+                if (next < list.size()) {
+                    iterators.set(top, next + 1);
+                    var child = list.get(next);
+                    child.pre = counter++;
+                    stack.add(child);
+                    iterators.add(0);
+                } else {
+                    node.post = counter;
+                    stack.remove(top);
+                    iterators.remove(top);
+                }
+            }
+        }
+
+        for (var node : nodes.values()) {
+            computeInterfaces(nodes, node);
+        }
+    }
+
+    private static void computeInterfaces(Map<TypeId, Node> nodes, Node node) {
+        if (node.state == 2) return;
+        if (node.state == 1) {
+            // Cyclic hierarchy, the node is left incomplete
+            return;
+        }
+        node.state = 1;
+        boolean chain = node.pre >= 0 && (node.superclass == null || node.parent != null);
+        BitSet out = NO_INTERFACES;
+        boolean complete = chain;
+        if (node.parent != null) {
+            computeInterfaces(nodes, node.parent);
+            chain &= node.parent.chain_complete;
+            complete &= node.parent.complete;
+            if (node.parent.all_interfaces != null) {
+                out = node.parent.all_interfaces;
+            }
+        }
+        boolean copied = false;
+        for (var type : node.interfaces) {
+            var iface = nodes.get(type);
+            if (iface == null || !iface.is_interface) {
+                complete = false;
+                continue;
+            }
+            computeInterfaces(nodes, iface);
+            complete &= iface.complete;
+            if (!copied) {
+                out = (BitSet) out.clone();
+                copied = true;
+            }
+            out.set(iface.interface_id);
+            if (iface.all_interfaces != null) {
+                out.or(iface.all_interfaces);
+            }
+        }
+        node.all_interfaces = out;
+        node.chain_complete = chain;
+        node.complete = complete;
+        node.state = 2;
+    }
+
+    private Node node(TypeId type) {
+        var out = nodes.get(type);
+        return out == null || out.pre < 0 ? null : out;
+    }
+
+    // Returns true if all supertypes of the type are known
+    public boolean isComplete(TypeId type) {
+        var node = node(type);
+        return node != null && node.complete;
+    }
+
+    private static boolean isSubtype(Node a, Node b) {
+        if (a == b) return true;
+        if (b.is_interface) {
+            return a.all_interfaces.get(b.interface_id);
+        }
+        return a.isSubclassOf(b);
+    }
+
+    @Override
+    public Boolean instanceOf(TypeId a, TypeId b) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        var na = node(a);
+        if (na == null) {
+            return null;
+        }
+        var nb = node(b);
+        if (nb != null && isSubtype(na, nb)) {
+            return Boolean.TRUE;
+        }
+        // All supertypes of a are known and b is not one of them
+        if (na.complete) {
+            return Boolean.FALSE;
+        }
+        // Only superclasses matter for a class
+        return nb != null && !nb.is_interface && na.chain_complete ? Boolean.FALSE : null;
+    }
+
+    private TypeId computeJoin(Node a, Node b) {
+        if (isSubtype(a, b)) return b.type;
+        if (isSubtype(b, a)) return a.type;
+        if ((a.is_interface && !b.complete) || (b.is_interface && !a.complete)) {
+            // One of the unknown supertypes may implement the interface
+            return UNKNOWN;
+        }
+        // The nearest superclass of a whose subtree contains b
+        for (var node = a.parent; node != null; node = node.parent) {
+            if (b.isSubclassOf(node)) {
+                return node.type;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    @Override
+    public TypeId join(TypeId a, TypeId b) {
+        Objects.requireNonNull(a);
+        Objects.requireNonNull(b);
+        if (a.equals(b)) return a;
+        var na = node(a);
+        var nb = node(b);
+        if (na == null || nb == null) {
+            return null;
+        }
+        // Join is symmetric, so the key does not depend on the order
+        long key = na.pre < nb.pre ?
+                ((long) na.pre << 32) | nb.pre :
+                ((long) nb.pre << 32) | na.pre;
+        // Long.hashCode() of such keys collides a lot, multiplication
+        //  by an odd constant is reversible and mixes the bits
+        key *= 0x9E3779B97F4A7C15L;
+        var out = joins.get(key);
+        if (out == null) {
+            out = computeJoin(na, nb);
+            joins.putIfAbsent(key, out);
+        }
+        return out == UNKNOWN ? null : out;
+    }
+}
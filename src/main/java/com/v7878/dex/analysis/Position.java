@@ -99,15 +99,16 @@ public final class Position {
 
     private final IntSet outputs;
 
+    // Lines of all positions share the registers of the initial empty line
     /* package */ Position(Instruction instruction,
-                           int register_count,
+                           RegisterLine empty_line,
                            int index, int address) {
         this.instruction = instruction;
         this.index = index;
         this.address = address;
-        this.register_count = register_count;
-        this.before = new RegisterLine(register_count);
-        this.after = new RegisterLine(register_count);
+        this.register_count = empty_line.registerCount();
+        this.before = new RegisterLine(empty_line);
+        this.after = new RegisterLine(empty_line);
         this.predecessors = new TreeSet<>();
         this.successors = new TreeSet<>();
         this.inputs = new IntSet();
@@ -122,6 +123,15 @@ public final class Position {
         before.copy(line);
     }
 
+    // Returns true if the registers have changed
+    /* package */ boolean replace(RegisterLine line) {
+        if (before.contentEquals(line)) {
+            return false;
+        }
+        before.copy(line);
+        return true;
+    }
+
     /* package */ boolean merge(TypeResolver resolver, RegisterLine line) {
         return before.merge(resolver, address, line);
     }
@@ -10,26 +10,92 @@ import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
+/**
+ * Registers are stored in fixed-size chunks that are shared between
+ * copies of the line and are copied only on first write, so lines of
+ * consecutive positions share all the slots that were not changed
+ */
 public final class RegisterLine {
-    private final Register[] registers;
+    private static final int MIN_CHUNK_SHIFT = 3;
+    private static final int MAX_CHUNKS = Long.SIZE;
+
+    private final int count;
+    private final int shift;
+    private Register[][] chunks;
+    // Whether the chunk table is not shared with other lines
+    private boolean owned_table;
+    // Bit i is set if chunk i is not shared with other lines
+    private long owned_chunks;
     private boolean this_initialized;
 
     /* package */ RegisterLine(int count) {
-        var array = new Register[count];
-        Arrays.fill(array, Undefined.INSTANCE);
-        this.registers = array;
+        int shift = MIN_CHUNK_SHIFT;
+        while ((MAX_CHUNKS << shift) < count) {
+            shift++;
+        }
+        var chunk = new Register[1 << shift];
+        Arrays.fill(chunk, Undefined.INSTANCE);
+        var table = new Register[(count + chunk.length - 1) >>> shift][];
+        Arrays.fill(table, chunk);
+        this.count = count;
+        this.shift = shift;
+        this.chunks = table;
+        this.owned_table = true;
+        this.owned_chunks = 0;
+    }
+
+    // Creates a line that shares all registers with the given one
+    /* package */ RegisterLine(RegisterLine line) {
+        this.count = line.count;
+        this.shift = line.shift;
+        share(line);
+    }
+
+    private void share(RegisterLine line) {
+        chunks = line.chunks;
+        owned_table = false;
+        owned_chunks = 0;
+        line.owned_table = false;
+        line.owned_chunks = 0;
+        this_initialized = line.this_initialized;
+    }
+
+    private Register[] toArray() {
+        var out = new Register[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = at(i);
+        }
+        return out;
     }
 
     public List<Register> registers() {
-        return Collections.unmodifiableList(Arrays.asList(registers));
+        return Collections.unmodifiableList(Arrays.asList(toArray()));
     }
 
     public int registerCount() {
-        return registers.length;
+        return count;
     }
 
     public Register at(int index) {
-        return registers[index];
+        Objects.checkIndex(index, count);
+        return chunks[index >>> shift][index & ((1 << shift) - 1)];
+    }
+
+    private void set(int index, Register value) {
+        // The last chunk may have slots past the count
+        Objects.checkIndex(index, count);
+        int chunk = index >>> shift;
+        if (!owned_table) {
+            chunks = chunks.clone();
+            owned_table = true;
+            assert owned_chunks == 0;
+        }
+        long bit = 1L << chunk;
+        if ((owned_chunks & bit) == 0) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned_chunks |= bit;
+        }
+        chunks[chunk][index & ((1 << shift) - 1)] = value;
     }
 
     public boolean isThisInitialized() {
@@ -64,20 +130,20 @@ public final class RegisterLine {
     }
 
     /* package */ void replace(int index, Register value) {
-        registers[index] = value;
+        set(index, value);
     }
 
     /* package */ void copy(int address, int index, Register value) {
-        var tmp = registers[index];
-        registers[index] = value;
+        var tmp = at(index);
+        set(index, value);
         if (tmp.isWideLo()) {
             var next = index + 1;
-            assert registers[next].isWideHi();
-            registers[next] = WidePiece.of(new Identifier(address, next));
+            assert at(next).isWideHi();
+            set(next, WidePiece.of(new Identifier(address, next)));
         } else if (tmp.isWideHi()) {
             var prev = index - 1;
-            assert registers[prev].isWideLo();
-            registers[prev] = WidePiece.of(new Identifier(address, prev));
+            assert at(prev).isWideLo();
+            set(prev, WidePiece.of(new Identifier(address, prev)));
         }
     }
 
@@ -89,21 +155,21 @@ public final class RegisterLine {
         assert lo.isWideLo();
         assert hi.isWideHi();
         int index_hi = index_lo + 1;
-        var tmp_lo = registers[index_lo];
-        var tmp_hi = registers[index_hi];
+        var tmp_lo = at(index_lo);
+        var tmp_hi = at(index_hi);
         if (tmp_lo.isWideHi()) {
             var prev = index_lo - 1;
-            assert registers[prev].isWideLo();
-            registers[prev] = WidePiece.of(new Identifier(address, prev));
+            assert at(prev).isWideLo();
+            set(prev, WidePiece.of(new Identifier(address, prev)));
         }
         if (tmp_hi.isWideLo()) {
             var next = index_hi + 1;
-            assert registers[next].isWideHi();
-            registers[next] = WidePiece.of(new Identifier(address, next));
+            assert at(next).isWideHi();
+            set(next, WidePiece.of(new Identifier(address, next)));
         }
         assert tmp_lo.isWideLo() == tmp_hi.isWideHi();
-        registers[index_lo] = lo;
-        registers[index_hi] = hi;
+        set(index_lo, lo);
+        set(index_hi, hi);
     }
 
     private static int assertSame(int a, int b) {
@@ -112,22 +178,44 @@ public final class RegisterLine {
     }
 
     /* package */ void copy(RegisterLine line) {
-        int length = assertSame(registers.length, line.registers.length);
-        System.arraycopy(line.registers, 0, registers, 0, length);
-        this_initialized = line.this_initialized;
+        assertSame(count, line.count);
+        share(line);
+    }
+
+    /* package */ boolean contentEquals(RegisterLine line) {
+        assertSame(count, line.count);
+        if (this_initialized != line.this_initialized) {
+            return false;
+        }
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] != line.chunks[chunk]
+                    && !Arrays.equals(chunks[chunk], line.chunks[chunk])) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /* package */ boolean merge(TypeResolver resolver, int address, RegisterLine line) {
-        int length = assertSame(registers.length, line.registers.length);
+        assertSame(count, line.count);
         boolean changed = false;
-        for (int i = 0; i < length; i++) {
-            var current = registers[i];
-            var merged = Register.merge(resolver, address, i, current, line.registers[i]);
-            boolean replace = !Objects.equals(current, merged);
-            if (replace) {
-                registers[i] = merged;
+        int chunk_size = 1 << shift;
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            // Shared chunks are equal, and merging equal registers changes nothing
+            if (chunks[chunk] == line.chunks[chunk]) {
+                continue;
+            }
+            int start = chunk << shift;
+            int end = Math.min(count, start + chunk_size);
+            for (int i = start; i < end; i++) {
+                var current = at(i);
+                var merged = Register.merge(resolver, address, i, current, line.at(i));
+                boolean replace = !Objects.equals(current, merged);
+                if (replace) {
+                    set(i, merged);
+                }
+                changed = changed || replace;
             }
-            changed = changed || replace;
         }
         if (this_initialized && !line.this_initialized) {
             this_initialized = false;
@@ -137,7 +225,7 @@ public final class RegisterLine {
     }
 
     public String describe() {
-        return Arrays.stream(registers).map(Objects::toString)
+        return Arrays.stream(toArray()).map(Objects::toString)
                 .collect(Collectors.joining(" | ", "[", "]"));
     }
 }
@@ -12,8 +12,18 @@ public record TypeInfo(TypeId base, int array_depth) {
         }
     }
 
+    private static final TypeInfo UNRESOLVED = new TypeInfo(null, 0);
+    private static final String PRIMITIVES = "VZBSCIJFD";
+    // Primitive types are the most frequent ones, so their infos are shared
+    private static final TypeInfo[] PRIMITIVE_INFOS = PRIMITIVES.chars()
+            .mapToObj(shorty -> new TypeInfo(TypeId.of(String.valueOf((char) shorty)), 0))
+            .toArray(TypeInfo[]::new);
+
     public static TypeInfo of(TypeId type) {
-        if (type == null) return new TypeInfo(null, 0);
+        if (type == null) return UNRESOLVED;
+        if (type.isPrimitive()) {
+            return PRIMITIVE_INFOS[PRIMITIVES.indexOf(type.getShorty())];
+        }
         return new TypeInfo(type.baseType(), type.getArrayDepth());
     }
 
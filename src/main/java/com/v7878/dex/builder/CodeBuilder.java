@@ -23,6 +23,7 @@ import com.v7878.dex.Format;
 import com.v7878.dex.Opcode;
 import com.v7878.dex.immutable.CallSiteId;
 import com.v7878.dex.immutable.FieldId;
+import com.v7878.dex.immutable.IdPool;
 import com.v7878.dex.immutable.MethodHandleId;
 import com.v7878.dex.immutable.MethodId;
 import com.v7878.dex.immutable.MethodImplementation;
@@ -183,6 +184,11 @@ public final class CodeBuilder {
 
     private interface BuilderNode {
         class Empty implements BuilderNode {
+            @Override
+            public boolean fixed_size() {
+                return true;
+            }
+
             @Override
             public int units() {
                 return 0;
@@ -220,15 +226,46 @@ public final class CodeBuilder {
             return 0;
         }
 
+        // Whether the size does not depend on the positions of instructions
+        default boolean fixed_size() {
+            return false;
+        }
+
         int units();
 
         List<Instruction> generate();
     }
 
+    // Fenwick tree of position shifts: shifting all positions
+    //  starting from some index and getting a shift take O(log n)
+    private static class PositionShifts {
+        private final int[] tree;
+
+        PositionShifts(int size) {
+            tree = new int[size + 1];
+        }
+
+        public void add_from(int index, int diff) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += diff;
+            }
+        }
+
+        public int get(int index) {
+            int out = 0;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                out += tree[i];
+            }
+            return out;
+        }
+    }
+
     private static class BuilderPosition {
-        private int units, position, label_offset;
+        private int units, position, label_offset, index;
         private BuilderPosition head, prev, next;
         private BuilderNode node;
+        // Not null only while instructions are merged
+        private PositionShifts shifts;
 
         public BuilderPosition(BuilderPosition head) {
             this.head = head == null ? this : head;
@@ -282,19 +319,29 @@ public final class CodeBuilder {
         }
 
         public int label_position() {
-            return position + label_offset;
+            return position() + label_offset;
         }
 
         public int position() {
-            return position;
+            return shifts == null ? position : position + shifts.get(index);
         }
 
         public void position(int position) {
             this.position = position;
         }
 
-        public void add_position(int diff) {
-            this.position += diff;
+        public int index() {
+            return index;
+        }
+
+        public void shifts(int index, PositionShifts shifts) {
+            this.index = index;
+            this.shifts = shifts;
+        }
+
+        public void apply_shifts() {
+            position = position();
+            shifts = null;
         }
     }
 
@@ -342,6 +389,7 @@ public final class CodeBuilder {
 
     private boolean generate_lines;
     private int synthetic_line;
+    private IdPool id_pool;
 
     private CodeBuilder(int regs_size, int ins_size, boolean add_hidden_this) {
         this.has_this = add_hidden_this;
@@ -356,16 +404,35 @@ public final class CodeBuilder {
         this.payloads = new BuilderPosition(null);
         this.generate_lines = false;
         this.synthetic_line = 0;
+        this.id_pool = null;
     }
 
     private List<Instruction> mergeInstructions() {
         var begin = root;
 
+        int count = 0;
+        for (var tmp = begin; tmp != null; tmp = tmp.next()) {
+            count++;
+        }
+        var shifts = new PositionShifts(count);
+        // Only nodes whose size depends on positions can change it
+        var dynamic = new ArrayList<BuilderPosition>();
+        {
+            int index = 0;
+            for (var tmp = begin; tmp != null; tmp = tmp.next()) {
+                tmp.shifts(index++, shifts);
+                var node = tmp.node();
+                if (node != null && (!node.fixed_size() || node.units() != tmp.units())) {
+                    dynamic.add(tmp);
+                }
+            }
+        }
+
         boolean changed;
         do {
             changed = false;
-            BuilderNode node;
-            for (var tmp = begin; (node = tmp.node()) != null; tmp = tmp.next()) {
+            for (var tmp : dynamic) {
+                var node = tmp.node();
                 var node_units = node.units();
                 var pos_units = tmp.units();
                 if (pos_units != node_units) {
@@ -390,13 +457,15 @@ public final class CodeBuilder {
 
                     // We correct positions for all nodes, including the last one
                     // (despite the fact that it does not contain any instructions)
-                    for (var tmp2 = tmp.next(); tmp2 != null; tmp2 = tmp2.next()) {
-                        tmp2.add_position(diff);
-                    }
+                    shifts.add_from(tmp.index() + 1, diff);
                 }
             }
         } while (changed);
 
+        for (var tmp = begin; tmp != null; tmp = tmp.next()) {
+            tmp.apply_shifts();
+        }
+
         var out = new ArrayList<Instruction>();
         for (var tmp = begin; tmp.node() != null; tmp = tmp.next()) {
             out.addAll(tmp.node().generate());
@@ -600,6 +669,11 @@ public final class CodeBuilder {
     private void add(Instruction instruction) {
         int units = instruction.getUnitCount();
         add(new BuilderNode() {
+            @Override
+            public boolean fixed_size() {
+                return true;
+            }
+
             @Override
             public int units() {
                 return units;
@@ -625,6 +699,11 @@ public final class CodeBuilder {
                 this.current = current;
             }
 
+            @Override
+            public boolean fixed_size() {
+                return true;
+            }
+
             @Override
             public int units() {
                 return units;
@@ -854,6 +933,9 @@ public final class CodeBuilder {
         Objects.requireNonNull(label1);
         Objects.requireNonNull(label2);
         Objects.requireNonNull(handler);
+        if (exceptionType != null && id_pool != null) {
+            exceptionType = id_pool.intern(exceptionType);
+        }
         try_items.add(new BuilderTryItem(label1, label2, exceptionType, handler));
     }
 
@@ -906,6 +988,16 @@ public final class CodeBuilder {
         return generate_lines(true);
     }
 
+    // Interns references of subsequent instructions, null disables interning
+    public CodeBuilder id_pool(IdPool pool) {
+        id_pool = pool;
+        return this;
+    }
+
+    private Object intern(Object constant) {
+        return id_pool == null ? constant : id_pool.internReference(constant);
+    }
+
     public CodeBuilder line(Object label, int line) {
         return addDebugItem(label, LineNumber.of(line));
     }
@@ -1073,7 +1165,7 @@ public final class CodeBuilder {
     public CodeBuilder f21c(Opcode op, int reg_or_pair, Object constant) {
         add(Instruction21c.of(op,
                 check_reg_or_pair(reg_or_pair, op.isRegPair(0)),
-                constant));
+                intern(constant)));
         return this;
     }
 
@@ -1118,7 +1210,7 @@ public final class CodeBuilder {
         add(Instruction22c.of(op,
                 check_reg_or_pair(reg_or_pair1, op.isRegPair(0)),
                 check_reg_or_pair(reg_or_pair2, op.isRegPair(1)),
-                constant));
+                intern(constant)));
         return this;
     }
 
@@ -1157,7 +1249,7 @@ public final class CodeBuilder {
     public CodeBuilder f31c(Opcode op, int reg_or_pair, Object constant) {
         add(Instruction31c.of(op,
                 check_reg_or_pair(reg_or_pair, op.isRegPair(0)),
-                constant));
+                intern(constant)));
         return this;
     }
 
@@ -1171,14 +1263,14 @@ public final class CodeBuilder {
                 arg_count > 2 ? args[2] : 0,
                 arg_count > 3 ? args[3] : 0,
                 arg_count > 4 ? args[4] : 0,
-                constant));
+                intern(constant)));
         return this;
     }
 
     // <AA|op BBBB CCCC> op {vCCCC .. vNNNN}, @BBBB (where NNNN = CCCC+AA-1)
     public CodeBuilder f3rc(Opcode op, Object constant, int arg_count, int first_arg_reg) {
         check_reg_range(first_arg_reg, arg_count);
-        add(Instruction3rc.of(op, arg_count, first_arg_reg, constant));
+        add(Instruction3rc.of(op, arg_count, first_arg_reg, intern(constant)));
         return this;
     }
 
@@ -1192,7 +1284,7 @@ public final class CodeBuilder {
                 arg_count > 2 ? args[2] : 0,
                 arg_count > 3 ? args[3] : 0,
                 arg_count > 4 ? args[4] : 0,
-                constant1, constant2));
+                intern(constant1), intern(constant2)));
         return this;
     }
 
@@ -1200,7 +1292,7 @@ public final class CodeBuilder {
     public CodeBuilder f4rcc(Opcode op, Object constant1,
                              Object constant2, int arg_count, int first_arg_reg) {
         check_reg_range(first_arg_reg, arg_count);
-        add(Instruction4rcc.of(op, arg_count, first_arg_reg, constant1, constant2));
+        add(Instruction4rcc.of(op, arg_count, first_arg_reg, intern(constant1), intern(constant2)));
         return this;
     }
 
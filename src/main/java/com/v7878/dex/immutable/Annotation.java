@@ -32,6 +32,7 @@ public final class Annotation implements CommonAnnotation, Comparable<Annotation
     private final AnnotationVisibility visibility;
     private final TypeId type;
     private final NavigableSet<AnnotationElement> elements;
+    private int hash;
 
     private Annotation(AnnotationVisibility visibility, TypeId type,
                        NavigableSet<AnnotationElement> elements) {
@@ -153,13 +154,18 @@ public final class Annotation implements CommonAnnotation, Comparable<Annotation
 
     @Override
     public int hashCode() {
-        return Objects.hash(getVisibility(), getType(), getElements());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getVisibility(), getType(), getElements());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof Annotation other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getVisibility(), other.getVisibility())
                 && Objects.equals(getType(), other.getType())
                 && Objects.equals(getElements(), other.getElements());
@@ -8,6 +8,7 @@ import java.util.Objects;
 public final class AnnotationElement implements Comparable<AnnotationElement> {
     private final String name;
     private final EncodedValue value;
+    private int hash;
 
     private AnnotationElement(String name, EncodedValue value) {
         this.name = Objects.requireNonNull(name);
@@ -28,7 +29,11 @@ public final class AnnotationElement implements Comparable<AnnotationElement> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getValue());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getName(), getValue());
+        }
+        return h;
     }
 
     @Override
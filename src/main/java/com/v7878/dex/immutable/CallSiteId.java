@@ -16,6 +16,7 @@ public final class CallSiteId implements Comparable<CallSiteId> {
     private final String method_name;
     private final ProtoId method_proto;
     private final List<EncodedValue> extra_arguments;
+    private int hash;
 
     private CallSiteId(String name, MethodHandleId method_handle, String method_name,
                        ProtoId method_proto, List<EncodedValue> extra_arguments) {
@@ -64,14 +65,19 @@ public final class CallSiteId implements Comparable<CallSiteId> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getMethodName(), getMethodProto(),
-                getMethodHandle(), getExtraArguments());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getName(), getMethodName(), getMethodProto(),
+                    getMethodHandle(), getExtraArguments());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof CallSiteId other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getName(), other.getName())
                 && Objects.equals(getMethodName(), other.getMethodName())
                 && Objects.equals(getMethodProto(), other.getMethodProto())
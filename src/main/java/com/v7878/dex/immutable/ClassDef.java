@@ -24,6 +24,7 @@ public final class ClassDef implements Annotatable {
     private final NavigableSet<FieldDef> fields;
     private final NavigableSet<MethodDef> methods;
     private final NavigableSet<Annotation> annotations;
+    private int hash;
 
     // Remove duplicates but keep order
     private static List<TypeId> toInterfacesList(Iterable<TypeId> interfaces) {
@@ -198,14 +199,19 @@ public final class ClassDef implements Annotatable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getType(), getAccessFlags(), getSuperclass(),
-                getInterfaces(), getSourceFile(), getFields(), getMethods());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getType(), getAccessFlags(), getSuperclass(),
+                    getInterfaces(), getSourceFile(), getFields(), getMethods());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof ClassDef other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && getAccessFlags() == other.getAccessFlags()
                 && Objects.equals(getType(), other.getType())
                 && Objects.equals(getSuperclass(), other.getSuperclass())
@@ -3,11 +3,16 @@ package com.v7878.dex.immutable;
 import com.v7878.dex.Internal;
 import com.v7878.dex.util.Converter;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public final class Dex {
     private final List<ClassDef> classes;
+    // Built on first lookup
+    private volatile Map<TypeId, ClassDef> class_index;
+    private int hash;
 
     private Dex(List<ClassDef> classes) {
         this.classes = Objects.requireNonNull(classes);
@@ -30,25 +35,38 @@ public final class Dex {
         return classes;
     }
 
-    public ClassDef findClass(TypeId type) {
-        Objects.requireNonNull(type);
-        for (ClassDef tmp : classes) {
-            if (tmp.getType().equals(type)) {
-                return tmp;
+    private Map<TypeId, ClassDef> classIndex() {
+        var out = class_index;
+        if (out == null) {
+            var map = new HashMap<TypeId, ClassDef>(classes.size() * 4 / 3 + 1);
+            for (ClassDef tmp : classes) {
+                // The first definition wins, as in a linear search
+                map.putIfAbsent(tmp.getType(), tmp);
             }
+            class_index = out = map;
         }
-        return null;
+        return out;
+    }
+
+    public ClassDef findClass(TypeId type) {
+        Objects.requireNonNull(type);
+        return classIndex().get(type);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(getClasses());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hashCode(getClasses());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof Dex other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getClasses(), other.getClasses());
     }
 }
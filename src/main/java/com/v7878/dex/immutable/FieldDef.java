@@ -18,6 +18,7 @@ public final class FieldDef extends MemberDef implements Comparable<FieldDef> {
     private final int hiddenapi_flags;
     private final EncodedValue initial_value;
     private final NavigableSet<Annotation> annotations;
+    private int hash;
 
     private FieldDef(String name, TypeId type, int access_flags, int hiddenapi_flags,
                      EncodedValue initial_value, NavigableSet<Annotation> annotations) {
@@ -83,8 +84,12 @@ public final class FieldDef extends MemberDef implements Comparable<FieldDef> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getAccessFlags(),
-                getHiddenApiFlags(), getType(), getInitialValue());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getName(), getAccessFlags(),
+                    getHiddenApiFlags(), getType(), getInitialValue());
+        }
+        return h;
     }
 
     @Override
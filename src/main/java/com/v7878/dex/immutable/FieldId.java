@@ -9,6 +9,7 @@ public final class FieldId extends MemberId implements Comparable<FieldId> {
     private final TypeId declaring_class;
     private final String name;
     private final TypeId type;
+    private int hash;
 
     private FieldId(TypeId declaring_class, String name, TypeId type) {
         this.declaring_class = Objects.requireNonNull(declaring_class);
@@ -69,7 +70,11 @@ public final class FieldId extends MemberId implements Comparable<FieldId> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getDeclaringClass(), getName(), getType());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getDeclaringClass(), getName(), getType());
+        }
+        return h;
     }
 
     @Override
@@ -0,0 +1,119 @@
+package com.v7878.dex.immutable;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe pool of canonical strings and ids.
+ * Equal values interned in the same pool are the same object,
+ * so they are stored once and compared by reference.
+ * The pool holds its values until it is cleared or becomes unreachable
+ */
+public final class IdPool {
+    private final ConcurrentHashMap<Object, Object> values;
+
+    public IdPool() {
+        values = new ConcurrentHashMap<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(T value) {
+        return (T) values.get(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T publish(T value) {
+        var old = values.putIfAbsent(value, value);
+        return old == null ? value : (T) old;
+    }
+
+    public String intern(String value) {
+        Objects.requireNonNull(value);
+        var out = lookup(value);
+        return out != null ? out : publish(value);
+    }
+
+    public TypeId intern(TypeId value) {
+        Objects.requireNonNull(value);
+        var out = lookup(value);
+        if (out != null) return out;
+        var descriptor = value.getDescriptor();
+        var canonical = intern(descriptor);
+        if (canonical != descriptor) {
+            value = TypeId.raw(value.getArrayDepth(), canonical);
+        }
+        return publish(value);
+    }
+
+    public ProtoId intern(ProtoId value) {
+        Objects.requireNonNull(value);
+        var out = lookup(value);
+        if (out != null) return out;
+        var return_type = value.getReturnType();
+        var parameters = value.getParameterTypes();
+        boolean changed = intern(return_type) != return_type;
+        int count = parameters.size();
+        for (int i = 0; !changed && i < count; i++) {
+            var type = parameters.get(i);
+            changed = intern(type) != type;
+        }
+        if (changed) {
+            var array = new TypeId[count];
+            for (int i = 0; i < count; i++) {
+                array[i] = intern(parameters.get(i));
+            }
+            value = ProtoId.of(intern(return_type), array);
+        }
+        return publish(value);
+    }
+
+    public FieldId intern(FieldId value) {
+        Objects.requireNonNull(value);
+        var out = lookup(value);
+        if (out != null) return out;
+        var declaring_class = value.getDeclaringClass();
+        var name = value.getName();
+        var type = value.getType();
+        if (intern(declaring_class) != declaring_class
+                || intern(name) != name || intern(type) != type) {
+            value = FieldId.of(intern(declaring_class), intern(name), intern(type));
+        }
+        return publish(value);
+    }
+
+    public MethodId intern(MethodId value) {
+        Objects.requireNonNull(value);
+        var out = lookup(value);
+        if (out != null) return out;
+        var declaring_class = value.getDeclaringClass();
+        var name = value.getName();
+        var proto = value.getProto();
+        if (intern(declaring_class) != declaring_class
+                || intern(name) != name || intern(proto) != proto) {
+            value = MethodId.of(intern(declaring_class), intern(name), intern(proto));
+        }
+        return publish(value);
+    }
+
+    /**
+     * Interns instruction reference (string, type, field, method or proto),
+     * other values are returned as is
+     */
+    public Object internReference(Object value) {
+        Objects.requireNonNull(value);
+        if (value instanceof String string) return intern(string);
+        if (value instanceof TypeId type) return intern(type);
+        if (value instanceof FieldId field) return intern(field);
+        if (value instanceof MethodId method) return intern(method);
+        if (value instanceof ProtoId proto) return intern(proto);
+        return value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void clear() {
+        values.clear();
+    }
+}
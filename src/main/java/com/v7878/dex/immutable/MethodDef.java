@@ -25,6 +25,7 @@ public final class MethodDef extends MemberDef implements Comparable<MethodDef>
     private final int hiddenapi_flags;
     private final MethodImplementation implementation;
     private final NavigableSet<Annotation> annotations;
+    private int hash;
 
     private MethodDef(
             String name, TypeId return_type, List<Parameter> parameters,
@@ -194,14 +195,19 @@ public final class MethodDef extends MemberDef implements Comparable<MethodDef>
 
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getAccessFlags(), getHiddenApiFlags(),
-                getReturnType(), getParameters(), getImplementation());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getName(), getAccessFlags(), getHiddenApiFlags(),
+                    getReturnType(), getParameters(), getImplementation());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof MethodDef other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && getAccessFlags() == other.getAccessFlags()
                 && getHiddenApiFlags() == other.getHiddenApiFlags()
                 && Objects.equals(getName(), other.getName())
@@ -8,6 +8,7 @@ import java.util.Objects;
 public final class MethodHandleId implements Comparable<MethodHandleId> {
     private final MethodHandleType handle_type;
     private final MemberId member;
+    private int hash;
 
     private MethodHandleId(MethodHandleType handle_type, MemberId member) {
         this.handle_type = Objects.requireNonNull(handle_type);
@@ -48,7 +49,11 @@ public final class MethodHandleId implements Comparable<MethodHandleId> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getHandleType(), getMember());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getHandleType(), getMember());
+        }
+        return h;
     }
 
     @Override
@@ -13,6 +13,7 @@ public final class MethodId extends MemberId implements Comparable<MethodId> {
     private final TypeId declaring_class;
     private final String name;
     private final ProtoId proto;
+    private int hash;
 
     private MethodId(TypeId declaring_class, String name, ProtoId proto) {
         this.declaring_class = Objects.requireNonNull(declaring_class);
@@ -129,7 +130,11 @@ public final class MethodId extends MemberId implements Comparable<MethodId> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getDeclaringClass(), getName(), getReturnType(), getParameterTypes());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getDeclaringClass(), getName(), getReturnType(), getParameterTypes());
+        }
+        return h;
     }
 
     @Override
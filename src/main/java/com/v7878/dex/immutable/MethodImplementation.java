@@ -10,12 +10,25 @@ import com.v7878.dex.util.Preconditions;
 import java.util.List;
 import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public final class MethodImplementation {
     private final int register_count;
     private final List<Instruction> instructions;
     private final NavigableSet<TryBlock> try_blocks;
     private final List<DebugItem> debug_items;
+    // Not null only for lazy implementations
+    private final Supplier<MethodImplementation> loader;
+    private volatile MethodImplementation loaded;
+    private int hash;
+
+    private MethodImplementation(int register_count, Supplier<MethodImplementation> loader) {
+        this.register_count = Preconditions.checkMethodRegisterCount(register_count);
+        this.instructions = null;
+        this.try_blocks = null;
+        this.debug_items = null;
+        this.loader = Objects.requireNonNull(loader);
+    }
 
     private MethodImplementation(
             int register_count, List<Instruction> instructions,
@@ -38,6 +51,7 @@ public final class MethodImplementation {
         }
         // TODO: deduplicate and remove unused AdvancePC items
         this.debug_items = Objects.requireNonNull(debug_items);
+        this.loader = null;
     }
 
     @Internal
@@ -46,6 +60,15 @@ public final class MethodImplementation {
         return new MethodImplementation(register_count, instructions, try_blocks, debug_items);
     }
 
+    /**
+     * Implementation whose contents are produced by the loader on first access,
+     * the loader must return an implementation with the same register count
+     */
+    @Internal
+    public static MethodImplementation lazy(int register_count, Supplier<MethodImplementation> loader) {
+        return new MethodImplementation(register_count, loader);
+    }
+
     public static MethodImplementation of(int register_count, Iterable<Instruction> instructions,
                                           Iterable<TryBlock> try_blocks, Iterable<DebugItem> debug_items) {
         return new MethodImplementation(register_count,
@@ -54,35 +77,60 @@ public final class MethodImplementation {
                 Converter.toList(debug_items));
     }
 
+    private MethodImplementation contents() {
+        if (loader == null) return this;
+        var out = loaded;
+        if (out == null) {
+            // Several threads may load the contents, any of the results can be used
+            out = Objects.requireNonNull(loader.get());
+            if (out.getRegisterCount() != register_count) {
+                throw new IllegalStateException(String.format(
+                        "Loaded implementation has %d registers instead of %d",
+                        out.getRegisterCount(), register_count));
+            }
+            loaded = out;
+        }
+        return out;
+    }
+
+    public boolean isLoaded() {
+        return loader == null || loaded != null;
+    }
+
     public int getRegisterCount() {
         return register_count;
     }
 
     public List<Instruction> getInstructions() {
-        return instructions;
+        return contents().instructions;
     }
 
     public NavigableSet<TryBlock> getTryBlocks() {
-        return try_blocks;
+        return contents().try_blocks;
     }
 
     public TryBlock getTryBlock(int address) {
-        return MemberUtils.findTryBlock(try_blocks, address);
+        return MemberUtils.findTryBlock(getTryBlocks(), address);
     }
 
     public List<DebugItem> getDebugItems() {
-        return debug_items;
+        return contents().debug_items;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getRegisterCount(), getInstructions(), getTryBlocks(), getDebugItems());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getRegisterCount(), getInstructions(), getTryBlocks(), getDebugItems());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof MethodImplementation other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && getRegisterCount() == other.getRegisterCount()
                 && Objects.equals(getInstructions(), other.getInstructions())
                 && Objects.equals(getTryBlocks(), other.getTryBlocks())
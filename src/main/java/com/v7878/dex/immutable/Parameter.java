@@ -16,6 +16,7 @@ public final class Parameter implements Annotatable {
     private final TypeId type;
     private final String name;
     private final NavigableSet<Annotation> annotations;
+    private int hash;
 
     private Parameter(TypeId type, String name, NavigableSet<Annotation> annotations) {
         this.type = Objects.requireNonNull(type);
@@ -67,13 +68,18 @@ public final class Parameter implements Annotatable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getName(), getType(), getAnnotations());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getName(), getType(), getAnnotations());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof Parameter other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getName(), other.getName())
                 && Objects.equals(getType(), other.getType())
                 && Objects.equals(getAnnotations(), other.getAnnotations());
@@ -17,6 +17,7 @@ import java.util.function.UnaryOperator;
 public final class ProtoId implements Comparable<ProtoId> {
     private final TypeId return_type;
     private final List<TypeId> parameters;
+    private int hash;
 
     private ProtoId(TypeId return_type, List<TypeId> parameters) {
         this.return_type = Objects.requireNonNull(return_type);
@@ -83,7 +84,11 @@ public final class ProtoId implements Comparable<ProtoId> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getReturnType(), getParameterTypes());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getReturnType(), getParameterTypes());
+        }
+        return h;
     }
 
     public ProtoId erased() {
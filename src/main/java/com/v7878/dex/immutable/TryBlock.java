@@ -13,6 +13,7 @@ public final class TryBlock implements Comparable<TryBlock> {
     private final int unit_count;
     private final Integer catch_all_address;
     private final List<ExceptionHandler> handlers;
+    private int hash;
 
     private TryBlock(int start_address, int unit_count, Integer catch_all_address,
                      List<ExceptionHandler> handlers) {
@@ -70,13 +71,18 @@ public final class TryBlock implements Comparable<TryBlock> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getStartAddress(), getUnitCount(), getCatchAllAddress(), getHandlers());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getStartAddress(), getUnitCount(), getCatchAllAddress(), getHandlers());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof TryBlock other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getStartAddress(), other.getStartAddress())
                 && Objects.equals(getUnitCount(), other.getUnitCount())
                 && Objects.equals(getCatchAllAddress(), other.getCatchAllAddress())
@@ -14,6 +14,7 @@ import java.util.Objects;
 public final class EncodedAnnotation extends EncodedValue implements CommonAnnotation {
     private final TypeId type;
     private final NavigableSet<AnnotationElement> elements;
+    private int hash;
 
     private EncodedAnnotation(TypeId type, NavigableSet<AnnotationElement> elements) {
         this.type = Objects.requireNonNull(type);
@@ -56,13 +57,18 @@ public final class EncodedAnnotation extends EncodedValue implements CommonAnnot
 
     @Override
     public int hashCode() {
-        return Objects.hash(getType(), getElements());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hash(getType(), getElements());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof EncodedAnnotation other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getType(), other.getType())
                 && Objects.equals(getElements(), other.getElements());
     }
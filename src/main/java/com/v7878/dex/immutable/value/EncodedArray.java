@@ -13,6 +13,7 @@ public final class EncodedArray extends EncodedValue {
     public static final EncodedArray EMPTY = new EncodedArray(Collections.emptyList());
 
     private final List<EncodedValue> value;
+    private int hash;
 
     private EncodedArray(List<EncodedValue> value) {
         this.value = Objects.requireNonNull(value);
@@ -52,13 +53,18 @@ public final class EncodedArray extends EncodedValue {
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(getValue());
+        int h = hash;
+        if (h == 0) {
+            hash = h = Objects.hashCode(getValue());
+        }
+        return h;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
         return obj instanceof EncodedArray other
+                && (hash == 0 || other.hash == 0 || hash == other.hash)
                 && Objects.equals(getValue(), other.getValue());
     }
 
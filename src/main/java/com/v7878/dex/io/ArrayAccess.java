@@ -0,0 +1,72 @@
+package com.v7878.dex.io;
+
+// Raw array accessors without position and bounds bookkeeping,
+//  callers are responsible for validating the index range
+class ArrayAccess {
+    public static short getShort(byte[] array, int index, boolean big_endian) {
+        int b0 = array[index] & 0xff;
+        int b1 = array[index + 1] & 0xff;
+        return (short) (big_endian ? b0 << 8 | b1 : b1 << 8 | b0);
+    }
+
+    public static int getInt(byte[] array, int index, boolean big_endian) {
+        int b0 = array[index] & 0xff;
+        int b1 = array[index + 1] & 0xff;
+        int b2 = array[index + 2] & 0xff;
+        int b3 = array[index + 3] & 0xff;
+        return big_endian ? b0 << 24 | b1 << 16 | b2 << 8 | b3
+                : b3 << 24 | b2 << 16 | b1 << 8 | b0;
+    }
+
+    public static long getLong(byte[] array, int index, boolean big_endian) {
+        long lo = getInt(array, index, big_endian) & 0xffffffffL;
+        long hi = getInt(array, index + 4, big_endian) & 0xffffffffL;
+        return big_endian ? lo << 32 | hi : hi << 32 | lo;
+    }
+
+    public static void putShort(byte[] array, int index, int value, boolean big_endian) {
+        if (big_endian) {
+            array[index] = (byte) (value >> 8);
+            array[index + 1] = (byte) value;
+        } else {
+            array[index] = (byte) value;
+            array[index + 1] = (byte) (value >> 8);
+        }
+    }
+
+    public static void putInt(byte[] array, int index, int value, boolean big_endian) {
+        if (big_endian) {
+            array[index] = (byte) (value >> 24);
+            array[index + 1] = (byte) (value >> 16);
+            array[index + 2] = (byte) (value >> 8);
+            array[index + 3] = (byte) value;
+        } else {
+            array[index] = (byte) value;
+            array[index + 1] = (byte) (value >> 8);
+            array[index + 2] = (byte) (value >> 16);
+            array[index + 3] = (byte) (value >> 24);
+        }
+    }
+
+    public static void putLong(byte[] array, int index, long value, boolean big_endian) {
+        int lo = (int) value;
+        int hi = (int) (value >> 32);
+        putInt(array, index, big_endian ? hi : lo, big_endian);
+        putInt(array, index + 4, big_endian ? lo : hi, big_endian);
+    }
+
+    // Little-endian value of 1 to 8 bytes, as in encoded_value
+    public static long getSizedLong(byte[] array, int index, int size) {
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result |= (array[index + i] & 0xffL) << (i * 8);
+        }
+        return result;
+    }
+
+    public static void putSizedLong(byte[] array, int index, long value, int size) {
+        for (int i = 0; i < size; i++) {
+            array[index + i] = (byte) (value >> (i * 8));
+        }
+    }
+}
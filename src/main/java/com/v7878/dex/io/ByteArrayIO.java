@@ -1,5 +1,8 @@
 package com.v7878.dex.io;
 
+import static com.v7878.dex.util.MathUtils.isPowerOfTwo;
+import static com.v7878.dex.util.MathUtils.roundUp;
+
 import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Objects;
@@ -7,6 +10,8 @@ import java.util.Objects;
 class ModifiableArray {
     static final int DEFAULT_GROW_FACTOR = 4096; // 4 KiB
     static final int MAX_GROW_FACTOR = 1024 * 1024; // 1 MiB
+    // Some VMs reserve header words in arrays
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
     private byte[] data;
     private int data_size;
@@ -41,12 +46,31 @@ class ModifiableArray {
         return Arrays.copyOf(data, data_size);
     }
 
+    // Capacity grows by half of the current one, but at least by the grow
+    //  factor, so large outputs are copied a constant number of times in total
+    private void grow(int min_capacity) {
+        long capacity = Math.max((long) min_capacity + grow_factor,
+                (long) data.length + (data.length >> 1));
+        data = Arrays.copyOf(data, Math.max(min_capacity,
+                (int) Math.min(capacity, MAX_ARRAY_SIZE)));
+    }
+
+    // Grows the backing array without changing the size
+    void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity");
+        }
+        if (capacity > data.length) {
+            grow(capacity);
+        }
+    }
+
     void ensureSize(int new_size) {
         if (new_size < 0) {
             throw new IllegalArgumentException("negative size");
         }
         if (new_size > data.length) {
-            data = Arrays.copyOf(data, new_size + grow_factor);
+            grow(new_size);
         }
         if (new_size > data_size) {
             data_size = new_size;
@@ -91,18 +115,243 @@ public class ByteArrayIO implements RandomIO {
         arr.setGrowFactor(new_grow_factor);
     }
 
+    private int advance(int length) {
+        int index = offset;
+        position(index + length);
+        return start + index;
+    }
+
     @Override
     public void writeByte(int value) {
-        int index = offset;
-        position(index + 1);
-        arr.data()[start + index] = (byte) value;
+        int index = advance(1);
+        arr.data()[index] = (byte) value;
+    }
+
+    @Override
+    public void writeShort(int value) {
+        int index = advance(2);
+        ArrayAccess.putShort(arr.data(), index, value, isBigEndian());
+    }
+
+    @Override
+    public void writeInt(int value) {
+        int index = advance(4);
+        ArrayAccess.putInt(arr.data(), index, value, isBigEndian());
+    }
+
+    @Override
+    public void writeLong(long value) {
+        int index = advance(8);
+        ArrayAccess.putLong(arr.data(), index, value, isBigEndian());
+    }
+
+    @Override
+    public void writeByteArray(byte[] array, int off, int len) {
+        Objects.requireNonNull(array);
+        Objects.checkFromIndexSize(off, len, array.length);
+        if (len == 0) {
+            return;
+        }
+        int index = advance(len);
+        System.arraycopy(array, off, arr.data(), index, len);
+    }
+
+    @Override
+    public void writeShortArray(short[] shorts) {
+        int index = advance(Math.multiplyExact(shorts.length, 2));
+        byte[] data = arr.data();
+        boolean big_endian = isBigEndian();
+        for (short value : shorts) {
+            ArrayAccess.putShort(data, index, value, big_endian);
+            index += 2;
+        }
+    }
+
+    @Override
+    public void writeIntArray(int[] ints) {
+        int index = advance(Math.multiplyExact(ints.length, 4));
+        byte[] data = arr.data();
+        boolean big_endian = isBigEndian();
+        for (int value : ints) {
+            ArrayAccess.putInt(data, index, value, big_endian);
+            index += 4;
+        }
+    }
+
+    @Override
+    public void writeULeb128(int value) {
+        int index = start + offset;
+        arr.ensureCapacity(index + 5);
+        position(Leb128.writeUnsignedLeb128(arr.data(), index, value) - start);
+    }
+
+    @Override
+    public void writeSLeb128(int value) {
+        int index = start + offset;
+        arr.ensureCapacity(index + 5);
+        position(Leb128.writeSignedLeb128(arr.data(), index, value) - start);
+    }
+
+    @Override
+    public void writeSizedLong(long value, int size) {
+        int index = advance(size);
+        ArrayAccess.putSizedLong(arr.data(), index, value, size);
+    }
+
+    @Override
+    public void writeMUtf8(String value) {
+        int length = value.length();
+        writeULeb128(length);
+        int index = start + offset;
+        // Each char takes at most 3 bytes, so space is reserved once
+        arr.ensureCapacity(Math.addExact(index, Math.multiplyExact(length, 3) + 1));
+        int end = MUTF8.encode(arr.data(), index, value);
+        position(end - start);
+    }
+
+    @Override
+    public void readFrom(RandomInput in, int length) {
+        if (length == 0) {
+            return;
+        }
+        int index = advance(length);
+        in.readFully(arr.data(), index, length);
+    }
+
+    @Override
+    public void fillZerosToAlignment(int alignment) {
+        assert isPowerOfTwo(alignment);
+        int old_position = position();
+        int new_position = roundUp(old_position, alignment);
+        int index = advance(new_position - old_position);
+        Arrays.fill(arr.data(), index, start + new_position, (byte) 0);
     }
 
     @Override
     public byte readByte() {
-        int index = offset;
-        position(index + 1);
-        return arr.data()[start + index];
+        return arr.data()[advance(1)];
+    }
+
+    @Override
+    public short readShort() {
+        return ArrayAccess.getShort(arr.data(), advance(2), isBigEndian());
+    }
+
+    @Override
+    public int readUShort() {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() {
+        return ArrayAccess.getInt(arr.data(), advance(4), isBigEndian());
+    }
+
+    @Override
+    public long readLong() {
+        return ArrayAccess.getLong(arr.data(), advance(8), isBigEndian());
+    }
+
+    @Override
+    public void readFully(byte[] array, int off, int len) {
+        Objects.checkFromIndexSize(off, len, array.length);
+        if (len == 0) {
+            return;
+        }
+        int index = advance(len);
+        System.arraycopy(arr.data(), index, array, off, len);
+    }
+
+    @Override
+    public short[] readShortArray(int length) {
+        short[] result = new short[length];
+        int index = advance(Math.multiplyExact(length, 2));
+        byte[] data = arr.data();
+        boolean big_endian = isBigEndian();
+        for (int i = 0; i < length; i++, index += 2) {
+            result[i] = ArrayAccess.getShort(data, index, big_endian);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] readIntArray(int length) {
+        int[] result = new int[length];
+        int index = advance(Math.multiplyExact(length, 4));
+        byte[] data = arr.data();
+        boolean big_endian = isBigEndian();
+        for (int i = 0; i < length; i++, index += 4) {
+            result[i] = ArrayAccess.getInt(data, index, big_endian);
+        }
+        return result;
+    }
+
+    @Override
+    public long readSizedLong(int size) {
+        return ArrayAccess.getSizedLong(arr.data(), advance(size), size);
+    }
+
+    @Override
+    public int readULeb128() {
+        long value = Leb128.readUnsignedLeb128(arr.data(), start + offset, arr.size());
+        if (value < 0) {
+            // Truncated value, fails the same way as the generic implementation
+            return Leb128.readUnsignedLeb128(this);
+        }
+        offset += (int) (value >>> 32);
+        return (int) value;
+    }
+
+    @Override
+    public int readSLeb128() {
+        long value = Leb128.readSignedLeb128(arr.data(), start + offset, arr.size());
+        if (value < 0) {
+            return Leb128.readSignedLeb128(this);
+        }
+        offset += (int) (value >>> 32);
+        return (int) value;
+    }
+
+    @Override
+    public int[] readULeb128Array(int length) {
+        int[] result = new int[length];
+        int end = Leb128.readUnsignedLeb128Array(arr.data(), start + offset, arr.size(), result);
+        if (end < 0) {
+            return RandomIO.super.readULeb128Array(length);
+        }
+        offset = end - start;
+        return result;
+    }
+
+    @Override
+    public String readMUTF8(int expected_length) {
+        int index = start + offset;
+        int end = MUTF8.findEnd(arr.data(), index, arr.size());
+        if (end < 0) {
+            return MUTF8.readMUTF8(this, expected_length);
+        }
+        String out = MUTF8.decode(arr.data(), index, end, expected_length);
+        offset = end + 1 - start;
+        return out;
+    }
+
+    @Override
+    public void readChunks(int length, ChunkConsumer consumer) {
+        int index = advance(length);
+        byte[] data = arr.data();
+        while (length > 0) {
+            int count = Math.min(length, CHUNK_SIZE);
+            consumer.accept(data, index, count);
+            index += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void writeTo(RandomOutput out, long length) {
+        int len = Math.toIntExact(length);
+        int index = advance(len);
+        out.writeByteArray(arr.data(), index, len);
     }
 
     public byte[] toByteArray() {
@@ -28,11 +28,133 @@ public class ByteArrayInput implements RandomInput {
         this.order = Objects.requireNonNull(order);
     }
 
+    private int advance(int length) {
+        int index = offset;
+        position(index + length);
+        return start + index;
+    }
+
     @Override
     public byte readByte() {
-        int index = offset;
-        position(index + 1);
-        return array[start + index];
+        return array[advance(1)];
+    }
+
+    @Override
+    public short readShort() {
+        return ArrayAccess.getShort(array, advance(2), isBigEndian());
+    }
+
+    @Override
+    public int readUShort() {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() {
+        return ArrayAccess.getInt(array, advance(4), isBigEndian());
+    }
+
+    @Override
+    public long readLong() {
+        return ArrayAccess.getLong(array, advance(8), isBigEndian());
+    }
+
+    @Override
+    public void readFully(byte[] arr, int off, int len) {
+        Objects.checkFromIndexSize(off, len, arr.length);
+        if (len == 0) {
+            return;
+        }
+        System.arraycopy(array, advance(len), arr, off, len);
+    }
+
+    @Override
+    public short[] readShortArray(int length) {
+        short[] result = new short[length];
+        int index = advance(Math.multiplyExact(length, 2));
+        boolean big_endian = isBigEndian();
+        for (int i = 0; i < length; i++, index += 2) {
+            result[i] = ArrayAccess.getShort(array, index, big_endian);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] readIntArray(int length) {
+        int[] result = new int[length];
+        int index = advance(Math.multiplyExact(length, 4));
+        boolean big_endian = isBigEndian();
+        for (int i = 0; i < length; i++, index += 4) {
+            result[i] = ArrayAccess.getInt(array, index, big_endian);
+        }
+        return result;
+    }
+
+    @Override
+    public long readSizedLong(int size) {
+        return ArrayAccess.getSizedLong(array, advance(size), size);
+    }
+
+    @Override
+    public int readULeb128() {
+        long value = Leb128.readUnsignedLeb128(array, start + offset, array.length);
+        if (value < 0) {
+            // Truncated value, fails the same way as the generic implementation
+            return Leb128.readUnsignedLeb128(this);
+        }
+        offset += (int) (value >>> 32);
+        return (int) value;
+    }
+
+    @Override
+    public int readSLeb128() {
+        long value = Leb128.readSignedLeb128(array, start + offset, array.length);
+        if (value < 0) {
+            return Leb128.readSignedLeb128(this);
+        }
+        offset += (int) (value >>> 32);
+        return (int) value;
+    }
+
+    @Override
+    public int[] readULeb128Array(int length) {
+        int[] result = new int[length];
+        int end = Leb128.readUnsignedLeb128Array(array, start + offset, array.length, result);
+        if (end < 0) {
+            return RandomInput.super.readULeb128Array(length);
+        }
+        offset = end - start;
+        return result;
+    }
+
+    @Override
+    public String readMUTF8(int expected_length) {
+        int index = start + offset;
+        int end = MUTF8.findEnd(array, index, array.length);
+        if (end < 0) {
+            // Unterminated string, fails the same way as the generic implementation
+            return MUTF8.readMUTF8(this, expected_length);
+        }
+        String out = MUTF8.decode(array, index, end, expected_length);
+        offset = end + 1 - start;
+        return out;
+    }
+
+    @Override
+    public void readChunks(int length, ChunkConsumer consumer) {
+        int index = advance(length);
+        while (length > 0) {
+            int count = Math.min(length, CHUNK_SIZE);
+            consumer.accept(array, index, count);
+            index += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void writeTo(RandomOutput out, long length) {
+        int len = Math.toIntExact(length);
+        out.writeByteArray(array, advance(len), len);
     }
 
     @Override
@@ -0,0 +1,155 @@
+package com.v7878.dex.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+public class ByteBufferInput implements RandomInput {
+    // Always little-endian, big-endian reads swap bytes explicitly
+    private final ByteBuffer buffer;
+    private ByteOrder order;
+    private int start;
+    private int offset;
+
+    private ByteBufferInput(ByteBuffer buffer, int start, int offset, ByteOrder order) {
+        this.buffer = buffer;
+        this.start = start;
+        this.offset = offset;
+        this.order = order;
+    }
+
+    public ByteBufferInput(ByteBuffer buffer) {
+        // Only absolute accessors are used, so the position and
+        //  limit of the original buffer do not matter after slicing
+        this(buffer.slice().order(ByteOrder.LITTLE_ENDIAN),
+                0, 0, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public ByteOrder getByteOrder() {
+        return order;
+    }
+
+    public void setByteOrder(ByteOrder order) {
+        this.order = Objects.requireNonNull(order);
+    }
+
+    private int advance(int length) {
+        int index = offset;
+        position(index + length);
+        return start + index;
+    }
+
+    @Override
+    public byte readByte() {
+        return buffer.get(advance(1));
+    }
+
+    @Override
+    public short readShort() {
+        short value = buffer.getShort(advance(2));
+        return isBigEndian() ? Short.reverseBytes(value) : value;
+    }
+
+    @Override
+    public int readUShort() {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() {
+        int value = buffer.getInt(advance(4));
+        return isBigEndian() ? Integer.reverseBytes(value) : value;
+    }
+
+    @Override
+    public long readLong() {
+        long value = buffer.getLong(advance(8));
+        return isBigEndian() ? Long.reverseBytes(value) : value;
+    }
+
+    @Override
+    public void readFully(byte[] arr, int off, int len) {
+        Objects.checkFromIndexSize(off, len, arr.length);
+        if (len == 0) {
+            return;
+        }
+        // Absolute bulk get is not available on older Android versions
+        ByteBuffer view = buffer.duplicate();
+        view.position(advance(len));
+        view.get(arr, off, len);
+    }
+
+    @Override
+    public long readSizedLong(int size) {
+        int index = advance(size);
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result |= (buffer.get(index + i) & 0xffL) << (i * 8);
+        }
+        return result;
+    }
+
+    @Override
+    public int readULeb128() {
+        long value = Leb128.readUnsignedLeb128(buffer, start + offset, buffer.limit());
+        if (value < 0) {
+            // Truncated value, fails the same way as the generic implementation
+            return Leb128.readUnsignedLeb128(this);
+        }
+        offset += (int) (value >>> 32);
+        return (int) value;
+    }
+
+    @Override
+    public int readSLeb128() {
+        long value = Leb128.readSignedLeb128(buffer, start + offset, buffer.limit());
+        if (value < 0) {
+            return Leb128.readSignedLeb128(this);
+        }
+        offset += (int) (value >>> 32);
+        return (int) value;
+    }
+
+    @Override
+    public int[] readULeb128Array(int length) {
+        int[] result = new int[length];
+        int end = Leb128.readUnsignedLeb128Array(buffer, start + offset, buffer.limit(), result);
+        if (end < 0) {
+            return RandomInput.super.readULeb128Array(length);
+        }
+        offset = end - start;
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit() - start;
+    }
+
+    @Override
+    public int position() {
+        return offset;
+    }
+
+    private int checkPosition(int position) {
+        Objects.checkIndex(start + position, buffer.limit() + 1);
+        return position;
+    }
+
+    @Override
+    public void position(int position) {
+        offset = checkPosition(position);
+    }
+
+    @Override
+    public RandomInput duplicateAt(int position) {
+        return new ByteBufferInput(buffer, start, checkPosition(position), order);
+    }
+
+    @Override
+    public RandomInput markAsStart() {
+        this.start += offset;
+        this.offset = 0;
+        return this;
+    }
+}
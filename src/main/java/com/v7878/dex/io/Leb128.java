@@ -1,5 +1,7 @@
 package com.v7878.dex.io;
 
+import java.nio.ByteBuffer;
+
 class Leb128 {
     public static int readSignedLeb128(RandomInput in) {
         int result = 0;
@@ -59,4 +61,135 @@ class Leb128 {
             remaining >>= 7;
         }
     }
+
+    // Array and buffer versions return the value in the low 32 bits and its
+    //  encoded length in the high 32 bits, or -1 if the sequence is not
+    //  terminated before the limit
+
+    public static long readUnsignedLeb128(byte[] data, int index, int limit) {
+        int result = 0;
+        for (int count = 0; count < 5; count++) {
+            if (index >= limit) {
+                return -1;
+            }
+            int cur = data[index++];
+            result |= (cur & 0x7f) << (count * 7);
+            if (cur >= 0) {
+                return ((long) (count + 1) << 32) | (result & 0xffffffffL);
+            }
+        }
+        throw new IllegalStateException("Invalid LEB128 sequence");
+    }
+
+    public static long readUnsignedLeb128(ByteBuffer data, int index, int limit) {
+        int result = 0;
+        for (int count = 0; count < 5; count++) {
+            if (index >= limit) {
+                return -1;
+            }
+            int cur = data.get(index++);
+            result |= (cur & 0x7f) << (count * 7);
+            if (cur >= 0) {
+                return ((long) (count + 1) << 32) | (result & 0xffffffffL);
+            }
+        }
+        throw new IllegalStateException("Invalid LEB128 sequence");
+    }
+
+    private static long signed(int result, int count) {
+        // Sign extend if appropriate, a 5-byte value has no spare bits
+        int shift = 32 - count * 7;
+        if (shift > 0) {
+            result = (result << shift) >> shift;
+        }
+        return ((long) count << 32) | (result & 0xffffffffL);
+    }
+
+    public static long readSignedLeb128(byte[] data, int index, int limit) {
+        int result = 0;
+        for (int count = 0; count < 5; count++) {
+            if (index >= limit) {
+                return -1;
+            }
+            int cur = data[index++];
+            result |= (cur & 0x7f) << (count * 7);
+            if (cur >= 0) {
+                return signed(result, count + 1);
+            }
+        }
+        throw new IllegalStateException("Invalid LEB128 sequence");
+    }
+
+    public static long readSignedLeb128(ByteBuffer data, int index, int limit) {
+        int result = 0;
+        for (int count = 0; count < 5; count++) {
+            if (index >= limit) {
+                return -1;
+            }
+            int cur = data.get(index++);
+            result |= (cur & 0x7f) << (count * 7);
+            if (cur >= 0) {
+                return signed(result, count + 1);
+            }
+        }
+        throw new IllegalStateException("Invalid LEB128 sequence");
+    }
+
+    // Decodes out.length unsigned values, returns the index after the last one
+    //  or -1 if some value is not terminated before the limit
+    public static int readUnsignedLeb128Array(byte[] data, int index, int limit, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            // Most values fit in one byte
+            if (index < limit && data[index] >= 0) {
+                out[i] = data[index++];
+                continue;
+            }
+            long value = readUnsignedLeb128(data, index, limit);
+            if (value < 0) {
+                return -1;
+            }
+            out[i] = (int) value;
+            index += (int) (value >>> 32);
+        }
+        return index;
+    }
+
+    public static int readUnsignedLeb128Array(ByteBuffer data, int index, int limit, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            long value = readUnsignedLeb128(data, index, limit);
+            if (value < 0) {
+                return -1;
+            }
+            out[i] = (int) value;
+            index += (int) (value >>> 32);
+        }
+        return index;
+    }
+
+    // The array must have at least 5 bytes at the index,
+    //  returns the index after the value
+    public static int writeUnsignedLeb128(byte[] data, int index, int value) {
+        int remaining = value >>> 7;
+        while (remaining != 0) {
+            data[index++] = (byte) ((value & 0x7f) | 0x80);
+            value = remaining;
+            remaining >>>= 7;
+        }
+        data[index++] = (byte) (value & 0x7f);
+        return index;
+    }
+
+    public static int writeSignedLeb128(byte[] data, int index, int value) {
+        int remaining = value >> 7;
+        boolean hasMore = true;
+        int end = ((value & Integer.MIN_VALUE) == 0) ? 0 : -1;
+        while (hasMore) {
+            hasMore = (remaining != end)
+                    || ((remaining & 1) != ((value >> 6) & 1));
+            data[index++] = (byte) ((value & 0x7f) | (hasMore ? 0x80 : 0));
+            value = remaining;
+            remaining >>= 7;
+        }
+        return index;
+    }
 }
@@ -1,13 +1,42 @@
 package com.v7878.dex.io;
 
-class MUTF8 {
-    private static String decode(RandomInput in, char[] out) {
+import java.nio.charset.StandardCharsets;
+
+public class MUTF8 {
+    // Larger buffers are not kept between calls
+    private static final int MAX_SCRATCH_LENGTH = 4096;
+    private static final ThreadLocal<char[]> SCRATCH =
+            ThreadLocal.withInitial(() -> new char[256]);
+
+    // Returns per-thread buffer of at least the given length
+    private static char[] scratch(int length) {
+        if (length > MAX_SCRATCH_LENGTH) {
+            return new char[length];
+        }
+        char[] out = SCRATCH.get();
+        if (out.length < length) {
+            out = new char[MAX_SCRATCH_LENGTH];
+            SCRATCH.set(out);
+        }
+        return out;
+    }
+
+    private static IllegalStateException lengthMismatch(int expected_length, int length) {
+        return new IllegalStateException("Declared length " + expected_length
+                + " doesn't match decoded length of " + length);
+    }
+
+    private static String decode(RandomInput in, char[] out, int expected_length) {
         int s = 0;
         while (true) {
             char a = (char) (in.readByte() & 0xff);
             if (a == 0) {
                 return new String(out, 0, s);
             }
+            if (s == expected_length) {
+                throw new IllegalStateException(
+                        "Decoded length exceeds declared length " + expected_length);
+            }
             out[s] = a;
             if (a < '\u0080') {
                 s++;
@@ -31,17 +60,168 @@ class MUTF8 {
     }
 
     public static String readMUTF8(RandomInput in, int expected_length) {
-        String result = decode(in, new char[expected_length]);
+        String result = decode(in, scratch(expected_length), expected_length);
         if (result.length() != expected_length) {
-            throw new IllegalStateException("Declared length " + expected_length
-                    + " doesn't match decoded length of " + result.length());
+            throw lengthMismatch(expected_length, result.length());
         }
         return result;
     }
 
     public static String readMUTF8(RandomInput in) {
         int expected_length = in.readULeb128();
-        return readMUTF8(in, expected_length);
+        // Array-backed inputs have their own implementation
+        return in.readMUTF8(expected_length);
+    }
+
+    // Returns index of the terminating zero or -1 if there is none before the limit
+    static int findEnd(byte[] data, int index, int limit) {
+        for (int i = index; i < limit; i++) {
+            if (data[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Decodes string data in range [index, end), where end is the index of the terminating zero
+    static String decode(byte[] data, int index, int end, int expected_length) {
+        // Leading ASCII run, there are no zeros before the end
+        int i = index;
+        while (i < end && data[i] > 0) {
+            i++;
+        }
+        if (i == end) {
+            int length = end - index;
+            if (length != expected_length) {
+                throw lengthMismatch(expected_length, length);
+            }
+            return new String(data, index, length, StandardCharsets.ISO_8859_1);
+        }
+        if (i - index > expected_length) {
+            throw lengthMismatch(expected_length, i - index);
+        }
+        // Each char takes at least one byte
+        char[] out = scratch(Math.min(expected_length, end - index));
+        int s = 0;
+        for (int k = index; k < i; k++) {
+            out[s++] = (char) data[k];
+        }
+        while (i < end) {
+            if (s == expected_length) {
+                throw new IllegalStateException(
+                        "Decoded length exceeds declared length " + expected_length);
+            }
+            int a = data[i++] & 0xff;
+            if (a < 0x80) {
+                out[s++] = (char) a;
+            } else if ((a & 0xe0) == 0xc0) {
+                // data[end] is zero, so continuation bytes never go past it
+                int b = data[i++] & 0xff;
+                if ((b & 0xC0) != 0x80) {
+                    throw new IllegalStateException("Bad second byte");
+                }
+                out[s++] = (char) (((a & 0x1F) << 6) | (b & 0x3F));
+            } else if ((a & 0xf0) == 0xe0) {
+                int b = data[i++] & 0xff;
+                if ((b & 0xC0) != 0x80) {
+                    throw new IllegalStateException("Bad second or third byte");
+                }
+                int c = data[i++] & 0xff;
+                if ((c & 0xC0) != 0x80) {
+                    throw new IllegalStateException("Bad second or third byte");
+                }
+                out[s++] = (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+            } else {
+                throw new IllegalStateException("Bad byte");
+            }
+        }
+        if (s != expected_length) {
+            throw lengthMismatch(expected_length, s);
+        }
+        return new String(out, 0, s);
+    }
+
+    private static char readChar(RandomInput in, int a) {
+        if (a < 0x80) {
+            return (char) a;
+        } else if ((a & 0xe0) == 0xc0) {
+            int b = in.readByte() & 0xff;
+            if ((b & 0xC0) != 0x80) {
+                throw new IllegalStateException("Bad second byte");
+            }
+            return (char) (((a & 0x1F) << 6) | (b & 0x3F));
+        } else if ((a & 0xf0) == 0xe0) {
+            int b = in.readByte() & 0xff;
+            int c = in.readByte() & 0xff;
+            if (((b & 0xC0) != 0x80) || ((c & 0xC0) != 0x80)) {
+                throw new IllegalStateException("Bad second or third byte");
+            }
+            return (char) (((a & 0x0F) << 12) | ((b & 0x3F) << 6) | (c & 0x3F));
+        }
+        throw new IllegalStateException("Bad byte");
+    }
+
+    // Returns the next character or -1 at the end of the string
+    private static int nextChar(RandomInput in) {
+        int a = in.readByte() & 0xff;
+        if (a == 0) {
+            return -1;
+        }
+        // ASCII fast path
+        return a < 0x80 ? a : readChar(in, a);
+    }
+
+    // Same order as String.compareTo(), but without decoding the whole string
+    public static int compareMUTF8(RandomInput in, String value) {
+        in.readULeb128(); // utf16_size
+        int length = value.length();
+        for (int i = 0; ; i++) {
+            int ch = nextChar(in);
+            if (ch < 0) {
+                return i - length;
+            }
+            if (i == length) {
+                return 1;
+            }
+            char other = value.charAt(i);
+            if (ch != other) {
+                return ch - other;
+            }
+        }
+    }
+
+    // The declared length is not verified here, so it is checked
+    //  only after the characters match, as decoding would do
+    public static boolean equalsMUTF8(RandomInput in, String value) {
+        int declared_length = in.readULeb128();
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (nextChar(in) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return nextChar(in) < 0 && declared_length == length;
+    }
+
+    public static boolean startsWithMUTF8(RandomInput in, String prefix) {
+        int declared_length = in.readULeb128();
+        int length = prefix.length();
+        for (int i = 0; i < length; i++) {
+            if (nextChar(in) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return declared_length >= length;
+    }
+
+    // Same as String.hashCode() of the decoded string
+    public static int hashMUTF8(RandomInput in) {
+        in.readULeb128(); // utf16_size
+        int hash = 0;
+        for (int ch = nextChar(in); ch >= 0; ch = nextChar(in)) {
+            hash = 31 * hash + ch;
+        }
+        return hash;
     }
 
     private static void encode(RandomOutput out, String s) {
@@ -66,4 +246,34 @@ class MUTF8 {
         encode(out, s);
         out.writeByte(0);
     }
+
+    // Encodes the string with the terminating zero, the array must have
+    //  at least 3 * s.length() + 1 bytes at the index.
+    //  Returns the index after the terminating zero
+    static int encode(byte[] data, int index, String s) {
+        final int length = s.length();
+        int i = 0;
+        while (true) {
+            // ASCII run
+            char ch;
+            while (i < length && (ch = s.charAt(i)) != 0 && ch <= 127) {
+                data[index++] = (byte) ch;
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            ch = s.charAt(i++);
+            if (ch <= 2047) {
+                data[index++] = (byte) (0xc0 | (0x1f & (ch >> 6)));
+                data[index++] = (byte) (0x80 | (0x3f & ch));
+            } else {
+                data[index++] = (byte) (0xe0 | (0x0f & (ch >> 12)));
+                data[index++] = (byte) (0x80 | (0x3f & (ch >> 6)));
+                data[index++] = (byte) (0x80 | (0x3f & ch));
+            }
+        }
+        data[index++] = 0;
+        return index;
+    }
 }
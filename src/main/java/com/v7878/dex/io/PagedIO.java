@@ -0,0 +1,521 @@
+package com.v7878.dex.io;
+
+import static com.v7878.dex.util.MathUtils.isPowerOfTwo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Objects;
+
+// Fixed-size pages, so growth never copies the content.
+//  Bytes that were never written read as zeros
+class Pages {
+    static final int PAGE_SHIFT = 16;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT; // 64 KiB
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private byte[][] pages = new byte[16][];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void ensureSize(int new_size) {
+        if (new_size < 0) {
+            throw new IllegalArgumentException("negative size");
+        }
+        if (new_size > size) {
+            size = new_size;
+        }
+    }
+
+    // The returned array is valid only until the next page is requested
+    byte[] readPage(int index) {
+        return page(index);
+    }
+
+    byte[] writePage(int index) {
+        return page(index);
+    }
+
+    private byte[] page(int index) {
+        if (index >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(index + 1, pages.length * 2));
+        }
+        byte[] page = pages[index];
+        if (page == null) {
+            page = pages[index] = new byte[PAGE_SIZE];
+        }
+        return page;
+    }
+
+    void flush() throws IOException {
+        // Nothing to do
+    }
+}
+
+// Only a few pages are kept in memory, the rest are written back to
+//  the channel when evicted and read again if they are needed later
+final class ChannelPages extends Pages {
+    static final int DEFAULT_CACHE_SIZE = 16; // 1 MiB
+
+    private final SeekableByteChannel channel;
+    private final long base;
+
+    private final byte[][] slots;
+    private final int[] indices;
+    private final boolean[] dirty;
+    private final long[] last_use;
+    private long clock;
+    private int last_slot;
+
+    // Bytes past this offset were never written to the channel
+    private long written_end;
+
+    ChannelPages(SeekableByteChannel channel, int cache_size) throws IOException {
+        assert cache_size > 0;
+        this.channel = channel;
+        this.base = channel.position();
+        this.slots = new byte[cache_size][];
+        this.indices = new int[cache_size];
+        this.dirty = new boolean[cache_size];
+        this.last_use = new long[cache_size];
+        Arrays.fill(indices, -1);
+    }
+
+    @Override
+    byte[] readPage(int index) {
+        return slots[slot(index)];
+    }
+
+    @Override
+    byte[] writePage(int index) {
+        int slot = slot(index);
+        dirty[slot] = true;
+        return slots[slot];
+    }
+
+    private int slot(int index) {
+        if (indices[last_slot] == index) {
+            return last_slot;
+        }
+        int victim = 0;
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (indices[slot] == index) {
+                return use(slot);
+            }
+            if (last_use[slot] < last_use[victim]) {
+                victim = slot;
+            }
+        }
+        try {
+            if (dirty[victim]) {
+                writeBack(victim);
+            }
+            load(victim, index);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return use(victim);
+    }
+
+    private int use(int slot) {
+        last_use[slot] = ++clock;
+        return last_slot = slot;
+    }
+
+    private void load(int slot, int index) throws IOException {
+        byte[] page = slots[slot];
+        if (page == null) {
+            page = slots[slot] = new byte[PAGE_SIZE];
+        } else {
+            Arrays.fill(page, (byte) 0);
+        }
+        indices[slot] = index;
+        dirty[slot] = false;
+        long start = (long) index << PAGE_SHIFT;
+        int length = (int) Math.max(0, Math.min(PAGE_SIZE, written_end - start));
+        var buffer = ByteBuffer.wrap(page, 0, length);
+        channel.position(base + start);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of channel");
+            }
+        }
+    }
+
+    private void writeBack(int slot) throws IOException {
+        long start = (long) indices[slot] << PAGE_SHIFT;
+        int length = (int) Math.min(PAGE_SIZE, size() - start);
+        if (length <= 0) {
+            dirty[slot] = false;
+            return;
+        }
+        // Content past the written end is unspecified, so gaps are filled explicitly
+        if (start > written_end) {
+            writeZeros(written_end, start);
+        }
+        write(start, ByteBuffer.wrap(slots[slot], 0, length));
+        dirty[slot] = false;
+    }
+
+    private void write(long start, ByteBuffer buffer) throws IOException {
+        long end = start + buffer.remaining();
+        channel.position(base + start);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        written_end = Math.max(written_end, end);
+    }
+
+    private void writeZeros(long start, long end) throws IOException {
+        var zeros = ByteBuffer.allocate((int) Math.min(PAGE_SIZE, end - start));
+        while (start < end) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), end - start));
+            write(start, zeros);
+            start += zeros.limit();
+        }
+    }
+
+    // Writes all pending pages and leaves the channel at the end of the data
+    @Override
+    void flush() throws IOException {
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (dirty[slot]) {
+                writeBack(slot);
+            }
+        }
+        if (written_end < size()) {
+            writeZeros(written_end, size());
+        }
+        channel.position(base + size());
+    }
+}
+
+/**
+ * Output that is kept in fixed-size pages instead of a single growing array,
+ * optionally backed by a channel. Duplicates share the content, but not the
+ * position. Not thread-safe
+ */
+public class PagedIO implements RandomIO {
+    private static final int PAGE_SIZE = Pages.PAGE_SIZE;
+    private static final int PAGE_SHIFT = Pages.PAGE_SHIFT;
+    private static final int PAGE_MASK = Pages.PAGE_MASK;
+
+    private final Pages pages;
+    private ByteOrder order;
+    private int start;
+    private int offset;
+
+    private PagedIO(Pages pages, int start, int offset, ByteOrder order) {
+        this.pages = pages;
+        this.start = start;
+        this.offset = offset;
+        this.order = order;
+    }
+
+    public PagedIO() {
+        this(new Pages(), 0, 0, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the content to the channel starting at its current position and
+     * keeps only a constant number of pages in memory. The channel must be
+     * readable, as evicted pages may be read back. I/O errors are reported as
+     * {@link UncheckedIOException}, call {@link #flush()} when done
+     */
+    public PagedIO(SeekableByteChannel channel) throws IOException {
+        this(new ChannelPages(channel, ChannelPages.DEFAULT_CACHE_SIZE),
+                0, 0, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public ByteOrder getByteOrder() {
+        return order;
+    }
+
+    public void setByteOrder(ByteOrder order) {
+        this.order = Objects.requireNonNull(order);
+    }
+
+    private int advance(int length) {
+        int index = offset;
+        position(index + length);
+        return start + index;
+    }
+
+    // Whether the next length bytes are in the same page
+    private boolean fits(int length) {
+        return ((start + offset) & PAGE_MASK) <= PAGE_SIZE - length;
+    }
+
+    @Override
+    public void writeByte(int value) {
+        int index = advance(1);
+        pages.writePage(index >>> PAGE_SHIFT)[index & PAGE_MASK] = (byte) value;
+    }
+
+    @Override
+    public void writeShort(int value) {
+        if (!fits(2)) {
+            RandomIO.super.writeShort(value);
+            return;
+        }
+        int index = advance(2);
+        ArrayAccess.putShort(pages.writePage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, value, isBigEndian());
+    }
+
+    @Override
+    public void writeInt(int value) {
+        if (!fits(4)) {
+            RandomIO.super.writeInt(value);
+            return;
+        }
+        int index = advance(4);
+        ArrayAccess.putInt(pages.writePage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, value, isBigEndian());
+    }
+
+    @Override
+    public void writeLong(long value) {
+        if (!fits(8)) {
+            RandomIO.super.writeLong(value);
+            return;
+        }
+        int index = advance(8);
+        ArrayAccess.putLong(pages.writePage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, value, isBigEndian());
+    }
+
+    @Override
+    public void writeByteArray(byte[] array, int off, int len) {
+        Objects.requireNonNull(array);
+        Objects.checkFromIndexSize(off, len, array.length);
+        while (len > 0) {
+            int count = Math.min(len, PAGE_SIZE - ((start + offset) & PAGE_MASK));
+            int index = advance(count);
+            System.arraycopy(array, off, pages.writePage(index >>> PAGE_SHIFT),
+                    index & PAGE_MASK, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void writeULeb128(int value) {
+        if (!fits(5)) {
+            RandomIO.super.writeULeb128(value);
+            return;
+        }
+        int index = (start + offset) & PAGE_MASK;
+        byte[] page = pages.writePage((start + offset) >>> PAGE_SHIFT);
+        position(offset + Leb128.writeUnsignedLeb128(page, index, value) - index);
+    }
+
+    @Override
+    public void writeSLeb128(int value) {
+        if (!fits(5)) {
+            RandomIO.super.writeSLeb128(value);
+            return;
+        }
+        int index = (start + offset) & PAGE_MASK;
+        byte[] page = pages.writePage((start + offset) >>> PAGE_SHIFT);
+        position(offset + Leb128.writeSignedLeb128(page, index, value) - index);
+    }
+
+    @Override
+    public void writeSizedLong(long value, int size) {
+        if (!fits(size)) {
+            RandomIO.super.writeSizedLong(value, size);
+            return;
+        }
+        int index = advance(size);
+        ArrayAccess.putSizedLong(pages.writePage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, value, size);
+    }
+
+    @Override
+    public void writeMUtf8(String value) {
+        int length = value.length();
+        // Length, at most 3 bytes per char and the terminating zero
+        if (length > (PAGE_SIZE - 6) / 3 || !fits(length * 3 + 6)) {
+            RandomIO.super.writeMUtf8(value);
+            return;
+        }
+        int index = (start + offset) & PAGE_MASK;
+        byte[] page = pages.writePage((start + offset) >>> PAGE_SHIFT);
+        int end = Leb128.writeUnsignedLeb128(page, index, length);
+        end = MUTF8.encode(page, end, value);
+        position(offset + end - index);
+    }
+
+    @Override
+    public void readFrom(RandomInput in, int length) {
+        while (length > 0) {
+            int count = Math.min(length, PAGE_SIZE - ((start + offset) & PAGE_MASK));
+            int index = advance(count);
+            in.readFully(pages.writePage(index >>> PAGE_SHIFT), index & PAGE_MASK, count);
+            length -= count;
+        }
+    }
+
+    @Override
+    public void fillZerosToAlignment(int alignment) {
+        assert isPowerOfTwo(alignment);
+        while (((start + offset) & (alignment - 1)) != 0) {
+            writeByte(0);
+        }
+    }
+
+    @Override
+    public byte readByte() {
+        int index = advance(1);
+        return pages.readPage(index >>> PAGE_SHIFT)[index & PAGE_MASK];
+    }
+
+    @Override
+    public short readShort() {
+        if (!fits(2)) {
+            return (short) RandomIO.super.readUShort();
+        }
+        int index = advance(2);
+        return ArrayAccess.getShort(pages.readPage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, isBigEndian());
+    }
+
+    @Override
+    public int readUShort() {
+        return readShort() & 0xffff;
+    }
+
+    @Override
+    public int readInt() {
+        if (!fits(4)) {
+            return RandomIO.super.readInt();
+        }
+        int index = advance(4);
+        return ArrayAccess.getInt(pages.readPage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, isBigEndian());
+    }
+
+    @Override
+    public long readLong() {
+        if (!fits(8)) {
+            return RandomIO.super.readLong();
+        }
+        int index = advance(8);
+        return ArrayAccess.getLong(pages.readPage(index >>> PAGE_SHIFT),
+                index & PAGE_MASK, isBigEndian());
+    }
+
+    @Override
+    public void readFully(byte[] array, int off, int len) {
+        Objects.checkFromIndexSize(off, len, array.length);
+        while (len > 0) {
+            int count = Math.min(len, PAGE_SIZE - ((start + offset) & PAGE_MASK));
+            int index = advance(count);
+            System.arraycopy(pages.readPage(index >>> PAGE_SHIFT), index & PAGE_MASK,
+                    array, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void readChunks(int length, ChunkConsumer consumer) {
+        while (length > 0) {
+            int count = Math.min(length, PAGE_SIZE - ((start + offset) & PAGE_MASK));
+            int index = advance(count);
+            consumer.accept(pages.readPage(index >>> PAGE_SHIFT), index & PAGE_MASK, count);
+            length -= count;
+        }
+    }
+
+    @Override
+    public void writeTo(RandomOutput out, long length) {
+        readChunks(Math.toIntExact(length), out::writeByteArray);
+    }
+
+    public byte[] toByteArray() {
+        byte[] out = new byte[size()];
+        duplicateAt(0).readFully(out);
+        return out;
+    }
+
+    // Writes the whole content page by page without a temporary copy
+    public void writeTo(OutputStream out) throws IOException {
+        Objects.requireNonNull(out);
+        try {
+            duplicateAt(0).readChunks(size(), (array, off, len) -> {
+                try {
+                    out.write(array, off, len);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public void writeTo(WritableByteChannel out) throws IOException {
+        Objects.requireNonNull(out);
+        try {
+            duplicateAt(0).readChunks(size(), (array, off, len) -> {
+                var buffer = ByteBuffer.wrap(array, off, len);
+                try {
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Writes pending pages to the channel, if any, and moves
+     * its position to the end of the content
+     */
+    public void flush() throws IOException {
+        pages.flush();
+    }
+
+    @Override
+    public int size() {
+        return pages.size() - start;
+    }
+
+    @Override
+    public int position() {
+        return offset;
+    }
+
+    @Override
+    public void position(int new_position) {
+        pages.ensureSize(start + new_position);
+        offset = new_position;
+    }
+
+    @Override
+    public PagedIO duplicateAt(int new_position) {
+        pages.ensureSize(start + new_position);
+        return new PagedIO(pages, start, new_position, order);
+    }
+
+    @Override
+    public RandomIO markAsStart() {
+        this.start += offset;
+        this.offset = 0;
+        return this;
+    }
+}
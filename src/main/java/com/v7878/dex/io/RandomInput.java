@@ -126,6 +126,25 @@ public interface RandomInput extends RandomAccess {
         return Leb128.readSignedLeb128(this);
     }
 
+    // Reads consecutive unsigned LEB128 values, such as class_data_item entries
+    default int[] readULeb128Array(int length) {
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = readULeb128();
+        }
+        return result;
+    }
+
+    // Reads little-endian value of 1 to 8 bytes regardless of the byte order,
+    //  as in encoded_value
+    default long readSizedLong(int size) {
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result |= (readByte() & 0xffL) << (i * 8);
+        }
+        return result;
+    }
+
     default String readMUTF8() {
         return MUTF8.readMUTF8(this);
     }
@@ -134,6 +153,25 @@ public interface RandomInput extends RandomAccess {
         return MUTF8.readMUTF8(this, expected_length);
     }
 
+    interface ChunkConsumer {
+        void accept(byte[] array, int offset, int length);
+    }
+
+    int CHUNK_SIZE = 64 * 1024; // 64 KiB
+
+    /**
+     * Passes the next length bytes to the consumer in chunks of at most {@link #CHUNK_SIZE}
+     */
+    default void readChunks(int length, ChunkConsumer consumer) {
+        byte[] buffer = new byte[Math.min(length, CHUNK_SIZE)];
+        while (length > 0) {
+            int count = Math.min(length, CHUNK_SIZE);
+            readFully(buffer, 0, count);
+            consumer.accept(buffer, 0, count);
+            length -= count;
+        }
+    }
+
     default void writeTo(RandomOutput out, long length) {
         for (int i = 0; i < length; i++) {
             out.writeByte(readByte());
@@ -83,6 +83,14 @@ public interface RandomOutput extends RandomAccess {
         Leb128.writeSignedLeb128(this, value);
     }
 
+    // Writes little-endian value of 1 to 8 bytes regardless of the byte order,
+    //  as in encoded_value
+    default void writeSizedLong(long value, int size) {
+        for (int i = 0; i < size; i++) {
+            writeByte((int) (value >> (i * 8)));
+        }
+    }
+
     default void writeMUtf8(String value) {
         MUTF8.writeMUTF8(this, value);
     }
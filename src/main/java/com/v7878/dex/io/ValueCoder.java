@@ -26,11 +26,7 @@ public class ValueCoder {
         out.writeByte(type.value() | ((requiredBytes - 1) << 5));
 
         // Write the value, per se.
-        while (requiredBytes > 0) {
-            out.writeByte((byte) value);
-            value >>= 8;
-            requiredBytes--;
-        }
+        out.writeSizedLong(value, requiredBytes);
     }
 
     public static void writeUnsignedIntegralValue(
@@ -51,11 +47,7 @@ public class ValueCoder {
         out.writeByte(type.value() | ((requiredBytes - 1) << 5));
 
         // Write the value, per se.
-        while (requiredBytes > 0) {
-            out.writeByte((byte) value);
-            value >>= 8;
-            requiredBytes--;
-        }
+        out.writeSizedLong(value, requiredBytes);
     }
 
     public static void writeRightZeroExtendedValue(
@@ -79,27 +71,20 @@ public class ValueCoder {
         out.writeByte(type.value() | ((requiredBytes - 1) << 5));
 
         // Write the value, per se.
-        while (requiredBytes > 0) {
-            out.writeByte((byte) value);
-            value >>= 8;
-            requiredBytes--;
-        }
+        out.writeSizedLong(value, requiredBytes);
     }
 
+    // Values are shifted in from the left, so the last bytes end up in the
+    //  high-order bits as if the bytes were read one by one
+
     public static int readSignedInt(RandomInput in, int zwidth) {
-        int result = 0;
-        for (int i = zwidth; i >= 0; i--) {
-            result = (result >>> 8) | (in.readUByte() << 24);
-        }
+        int result = (int) ((in.readSizedLong(zwidth + 1) << ((7 - zwidth) * 8)) >>> 32);
         result >>= (3 - zwidth) * 8;
         return result;
     }
 
     public static int readUnsignedInt(RandomInput in, int zwidth, boolean fillOnRight) {
-        int result = 0;
-        for (int i = zwidth; i >= 0; i--) {
-            result = (result >>> 8) | (in.readUByte() << 24);
-        }
+        int result = (int) ((in.readSizedLong(zwidth + 1) << ((7 - zwidth) * 8)) >>> 32);
         if (!fillOnRight) {
             result >>>= (3 - zwidth) * 8;
         }
@@ -107,19 +92,13 @@ public class ValueCoder {
     }
 
     public static long readSignedLong(RandomInput in, int zwidth) {
-        long result = 0;
-        for (int i = zwidth; i >= 0; i--) {
-            result = (result >>> 8) | ((in.readByte() & 0xffL) << 56);
-        }
+        long result = in.readSizedLong(zwidth + 1) << ((7 - zwidth) * 8);
         result >>= (7 - zwidth) * 8;
         return result;
     }
 
     public static long readUnsignedLong(RandomInput in, int zwidth, boolean fillOnRight) {
-        long result = 0;
-        for (int i = zwidth; i >= 0; i--) {
-            result = (result >>> 8) | ((in.readByte() & 0xffL) << 56);
-        }
+        long result = in.readSizedLong(zwidth + 1) << ((7 - zwidth) * 8);
         if (!fillOnRight) {
             result >>>= (7 - zwidth) * 8;
         }
@@ -508,8 +508,17 @@ public class DexCollector {
         }
     }
 
+    // Does not modify the collector, so it can be called from any thread
+    public ClassDefContainer toContainer(ClassDef value) {
+        return ClassDefContainer.of(strings, rewrite, compact, debug, value);
+    }
+
     public void addClassDef(ClassDef value) {
-        var container = ClassDefContainer.of(strings, rewrite, compact, debug, value);
+        addClassDef(toContainer(value));
+    }
+
+    public void addClassDef(ClassDefContainer container) {
+        var value = container.value;
         class_defs.add(container);
         addType(value.getType());
         var superclass = value.getSuperclass();
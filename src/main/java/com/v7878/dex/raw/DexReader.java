@@ -20,10 +20,13 @@ import static com.v7878.dex.DexConstants.REVERSE_ENDIAN_CONSTANT;
 import static com.v7878.dex.DexConstants.TYPE_CALL_SITE_ID_ITEM;
 import static com.v7878.dex.DexConstants.TYPE_HIDDENAPI_CLASS_DATA_ITEM;
 import static com.v7878.dex.DexConstants.TYPE_METHOD_HANDLE_ITEM;
+import static com.v7878.dex.DexIO.ClassSummary;
 import static com.v7878.dex.DexIO.InvalidDexFile;
 import static com.v7878.dex.DexIO.NotADexFile;
 import static com.v7878.dex.DexOffsets.BASE_HEADER_SIZE;
 import static com.v7878.dex.DexOffsets.CALL_SITE_ID_SIZE;
+import static com.v7878.dex.DexOffsets.CHECKSUM_DATA_START_OFFSET;
+import static com.v7878.dex.DexOffsets.CHECKSUM_OFFSET;
 import static com.v7878.dex.DexOffsets.CLASS_COUNT_OFFSET;
 import static com.v7878.dex.DexOffsets.CLASS_DEF_SIZE;
 import static com.v7878.dex.DexOffsets.CLASS_START_OFFSET;
@@ -75,6 +78,9 @@ import static com.v7878.dex.DexOffsets.METHOD_START_OFFSET;
 import static com.v7878.dex.DexOffsets.PROTO_COUNT_OFFSET;
 import static com.v7878.dex.DexOffsets.PROTO_ID_SIZE;
 import static com.v7878.dex.DexOffsets.PROTO_START_OFFSET;
+import static com.v7878.dex.DexOffsets.SIGNATURE_DATA_START_OFFSET;
+import static com.v7878.dex.DexOffsets.SIGNATURE_OFFSET;
+import static com.v7878.dex.DexOffsets.SIGNATURE_SIZE;
 import static com.v7878.dex.DexOffsets.STRING_COUNT_OFFSET;
 import static com.v7878.dex.DexOffsets.STRING_ID_SIZE;
 import static com.v7878.dex.DexOffsets.STRING_START_OFFSET;
@@ -99,6 +105,7 @@ import static com.v7878.dex.raw.CompactDexConstants.kRegistersSizeShift;
 import static com.v7878.dex.raw.CompactDexConstants.kTriesSizeSizeShift;
 import static com.v7878.dex.util.Checks.checkIndex;
 
+import com.v7878.collections.IntHashMap;
 import com.v7878.collections.IntMap;
 import com.v7878.dex.AnnotationVisibility;
 import com.v7878.dex.DexIO;
@@ -152,20 +159,28 @@ import com.v7878.dex.immutable.value.EncodedShort;
 import com.v7878.dex.immutable.value.EncodedString;
 import com.v7878.dex.immutable.value.EncodedType;
 import com.v7878.dex.immutable.value.EncodedValue;
+import com.v7878.dex.io.MUTF8;
 import com.v7878.dex.io.RandomInput;
 import com.v7878.dex.io.ValueCoder;
 import com.v7878.dex.raw.legacy.Dex009;
 import com.v7878.dex.raw.legacy.Dex013;
 import com.v7878.dex.util.CachedFixedSizeList;
+import com.v7878.dex.util.MathUtils;
 import com.v7878.dex.util.MemberUtils;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.IntFunction;
 import java.util.function.IntSupplier;
+import java.util.zip.Adler32;
 
 public class DexReader implements DexIO.DexReaderCache {
     private record AnnotationDirectory(NavigableSet<Annotation> class_annotations,
@@ -209,11 +224,14 @@ public class DexReader implements DexIO.DexReaderCache {
     private final List<MethodHandleId> method_handle_section;
     private final List<CallSiteId> callsite_section;
     private final List<ClassDef> class_section;
+    // Class index of each type or -1, built on first lookup
+    private volatile int[] class_by_type;
 
     private final List<MapItem> map_items;
 
     private final IntFunction<IntSupplier> hiddenapi_section;
 
+    private final int header_offset;
     private final int file_size;
 
     // Not null only for compact dex files
@@ -226,6 +244,7 @@ public class DexReader implements DexIO.DexReaderCache {
             throw new IllegalArgumentException("Negative header offset");
         }
         this.options = options;
+        this.header_offset = header_offset;
         main_buffer = input.duplicate();
 
         if (main_buffer.size() < Math.addExact(header_offset, BASE_HEADER_SIZE)) {
@@ -255,6 +274,15 @@ public class DexReader implements DexIO.DexReaderCache {
             throw new InvalidDexFile("Truncated dex file");
         }
 
+        // Before anything else is parsed, so corrupted data is reported as such
+        if (options.hasChecksumVerification()) {
+            if (!hasChecksum(version)) {
+                throw new IllegalArgumentException(
+                        "Checksum verification is not supported for " + version);
+            }
+            verifyChecksum();
+        }
+
         int container_off = 0;
         int container_size = file_size;
         if (version.isDexContainer()) {
@@ -424,6 +452,60 @@ public class DexReader implements DexIO.DexReaderCache {
         }
     }
 
+    // Compact dex checksums cover a different layout and are not written by
+    //  DexWriter, versions 009 and 013 have no signature
+    private static boolean hasChecksum(DexVersion version) {
+        return !version.isCompact() && version != DEX013 && version != DEX009;
+    }
+
+    /**
+     * Verifies the SHA-1 signature and Adler32 checksum of this dex file
+     * in a single pass over its data.
+     *
+     * @throws UnsupportedOperationException for compact dex and versions 009 and 013
+     */
+    public void verifyChecksum() {
+        if (!hasChecksum(version)) {
+            throw new UnsupportedOperationException(
+                    "Checksum verification is not supported for " + version);
+        }
+        if (file_size < SIGNATURE_DATA_START_OFFSET) {
+            throw new InvalidDexFile("Truncated dex file");
+        }
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to find SHA-1 MessageDigest", e);
+        }
+        Adler32 adler = new Adler32();
+        int signed_length = file_size - SIGNATURE_DATA_START_OFFSET;
+        mainAt(header_offset + SIGNATURE_DATA_START_OFFSET)
+                .readChunks(signed_length, (array, offset, length) -> {
+                    md.update(array, offset, length);
+                    adler.update(array, offset, length);
+                });
+
+        byte[] signature = mainAt(header_offset + SIGNATURE_OFFSET).readByteArray(SIGNATURE_SIZE);
+        if (!MessageDigest.isEqual(signature, md.digest())) {
+            throw new InvalidDexFile(String.format(
+                    "Invalid signature of dex file at offset %d", header_offset));
+        }
+
+        assert CHECKSUM_DATA_START_OFFSET == SIGNATURE_OFFSET;
+        assert SIGNATURE_OFFSET + SIGNATURE_SIZE == SIGNATURE_DATA_START_OFFSET;
+        Adler32 prefix = new Adler32();
+        prefix.update(signature, 0, SIGNATURE_SIZE);
+        int actual = MathUtils.adler32Combine((int) prefix.getValue(),
+                (int) adler.getValue(), signed_length);
+        int expected = mainAt(header_offset + CHECKSUM_OFFSET).readInt();
+        if (actual != expected) {
+            throw new InvalidDexFile(String.format(
+                    "Invalid checksum of dex file at offset %d: expected 0x%08x, but was 0x%08x",
+                    header_offset, expected, actual));
+        }
+    }
+
     public RandomInput mainAt(int offset) {
         return main_buffer.duplicateAt(offset);
     }
@@ -432,6 +514,10 @@ public class DexReader implements DexIO.DexReaderCache {
         return data_buffer.duplicateAt(offset);
     }
 
+    public int getHeaderOffset() {
+        return header_offset;
+    }
+
     public int getFileSize() {
         return file_size;
     }
@@ -486,12 +572,30 @@ public class DexReader implements DexIO.DexReaderCache {
         return null;
     }
 
-    private static <T> IntFunction<T> makeOffsetCache(IntFunction<T> reader) {
-        var cache = new IntMap<T>();
+    private <T> IntFunction<T> makeOffsetCache(IntFunction<T> reader) {
+        int limit = options.getOffsetCacheLimit();
+        if (options.isConcurrentAccess()) {
+            var cache = new ConcurrentHashMap<Integer, T>();
+            return offset -> {
+                var out = cache.get(offset);
+                if (out != null) return out;
+                out = reader.apply(offset);
+                if (limit != 0 && cache.size() >= limit) {
+                    cache.clear();
+                }
+                // Keep the value published by another thread, if any
+                var prev = cache.putIfAbsent(offset, out);
+                return prev != null ? prev : out;
+            };
+        }
+        var cache = new IntHashMap<T>();
         return offset -> {
             var out = cache.get(offset);
             if (out != null) return out;
             out = reader.apply(offset);
+            if (limit != 0 && cache.size() >= limit) {
+                cache.clear();
+            }
             cache.put(offset, out);
             return out;
         };
@@ -678,7 +782,7 @@ public class DexReader implements DexIO.DexReaderCache {
 
     private <T> List<T> makeSection(int section_size, int offset, int element_size, SectionReader<T> reader) {
         if (section_size == 0) return List.of();
-        return new CachedFixedSizeList<>(section_size) {
+        return new CachedFixedSizeList<>(section_size, options.isConcurrentAccess()) {
             @Override
             protected T compute(int index) {
                 return reader.read(index, offset + index * element_size);
@@ -686,16 +790,41 @@ public class DexReader implements DexIO.DexReaderCache {
         };
     }
 
+    private String intern(String value) {
+        var pool = options.getIdPool();
+        return pool == null ? value : pool.intern(value);
+    }
+
+    private TypeId intern(TypeId value) {
+        var pool = options.getIdPool();
+        return pool == null ? value : pool.intern(value);
+    }
+
+    private FieldId intern(FieldId value) {
+        var pool = options.getIdPool();
+        return pool == null ? value : pool.intern(value);
+    }
+
+    private ProtoId intern(ProtoId value) {
+        var pool = options.getIdPool();
+        return pool == null ? value : pool.intern(value);
+    }
+
+    private MethodId intern(MethodId value) {
+        var pool = options.getIdPool();
+        return pool == null ? value : pool.intern(value);
+    }
+
     private String readString(int index, int offset) {
         if (version == DEX013) {
-            return Dex013.readString(this, index, offset);
+            return intern(Dex013.readString(this, index, offset));
         }
         if (version == DEX009) {
-            return Dex009.readString(this, index, offset);
+            return intern(Dex009.readString(this, index, offset));
         }
         var in = mainAt(offset);
         int data_offset = in.readSmallUInt();
-        return dataAt(data_offset).readMUTF8();
+        return intern(dataAt(data_offset).readMUTF8());
     }
 
     @Override
@@ -705,10 +834,10 @@ public class DexReader implements DexIO.DexReaderCache {
 
     private TypeId readTypeId(int index, int offset) {
         if (version == DEX009) {
-            return Dex009.readTypeId(this, index, offset);
+            return intern(Dex009.readTypeId(this, index, offset));
         }
         var descriptor = getString(mainAt(offset).readSmallUInt());
-        return TypeId.of(descriptor);
+        return intern(TypeId.of(descriptor));
     }
 
     @Override
@@ -718,16 +847,16 @@ public class DexReader implements DexIO.DexReaderCache {
 
     private FieldId readFieldId(int index, int offset) {
         if (version == DEX013) {
-            return Dex013.readFieldId(this, index, offset);
+            return intern(Dex013.readFieldId(this, index, offset));
         }
         if (version == DEX009) {
-            return Dex009.readFieldId(this, index, offset);
+            return intern(Dex009.readFieldId(this, index, offset));
         }
         var in = mainAt(offset);
         var declaring_class = getType(in.readUShort());
         var type = getType(in.readUShort());
         var name = getString(in.readSmallUInt());
-        return FieldId.of(declaring_class, name, type);
+        return intern(FieldId.of(declaring_class, name, type));
     }
 
     @Override
@@ -742,7 +871,7 @@ public class DexReader implements DexIO.DexReaderCache {
         int parameters_off = in.readSmallUInt();
         var parameters = parameters_off == NO_OFFSET ?
                 List.<TypeId>of() : getTypeList(parameters_off);
-        return ProtoId.raw(return_type, parameters);
+        return intern(ProtoId.raw(return_type, parameters));
     }
 
     @Override
@@ -752,16 +881,16 @@ public class DexReader implements DexIO.DexReaderCache {
 
     private MethodId readMethodId(int index, int offset) {
         if (version == DEX013) {
-            return Dex013.readMethodId(this, index, offset);
+            return intern(Dex013.readMethodId(this, index, offset));
         }
         if (version == DEX009) {
-            return Dex009.readMethodId(this, index, offset);
+            return intern(Dex009.readMethodId(this, index, offset));
         }
         var in = mainAt(offset);
         var declaring_class = getType(in.readUShort());
         var proto = getProto(in.readUShort());
         var name = getString(in.readSmallUInt());
-        return MethodId.of(declaring_class, name, proto);
+        return intern(MethodId.of(declaring_class, name, proto));
     }
 
     @Override
@@ -922,38 +1051,65 @@ public class DexReader implements DexIO.DexReaderCache {
         return Collections.unmodifiableList(out);
     }
 
+    private List<String> readParameterNames(RandomInput in) {
+        int parameters_size = in.readSmallULeb128();
+        List<String> parameter_names = new ArrayList<>(parameters_size);
+        for (int i = 0; i < parameters_size; i++) {
+            int name_idx = in.readULeb128() - 1;
+            parameter_names.add(name_idx == NO_INDEX ?
+                    null : getString(name_idx));
+        }
+        return Collections.unmodifiableList(parameter_names);
+    }
+
     public DebugInfo readDebugInfo(int offset) {
         var in = dataAt(offset);
         int line_start = in.readULeb128();
-        List<String> parameter_names;
-        {
-            int parameters_size = in.readSmallULeb128();
-            parameter_names = new ArrayList<>(parameters_size);
-            for (int i = 0; i < parameters_size; i++) {
-                int name_idx = in.readULeb128() - 1;
-                parameter_names.add(name_idx == NO_INDEX ?
-                        null : getString(name_idx));
-            }
-            parameter_names = Collections.unmodifiableList(parameter_names);
-        }
+        var parameter_names = readParameterNames(in);
         var items = readDebugItemArray(in, line_start);
         return new DebugInfo(parameter_names, items);
     }
 
+    // Reads only the header of debug info, without debug items
+    private List<String> readDebugParameterNames(int offset) {
+        var in = dataAt(offset);
+        in.readULeb128(); // line_start
+        return readParameterNames(in);
+    }
+
     public DebugInfo getDebugInfo(int offset) {
         return debug_info_cache.apply(offset);
     }
 
+    // Field and method entries of class_data_item are read at once,
+    //  each field is encoded as 2 values and each method as 3
+    private static int[] readClassDataEntries(RandomInput class_data, long fields, long methods) {
+        long length = fields * 2 + methods * 3;
+        // Each value takes at least one byte
+        if (length > class_data.size() - class_data.position()) {
+            throw new InvalidDexFile("Truncated class_data_item");
+        }
+        return class_data.readULeb128Array((int) length);
+    }
+
+    private static int checkSmallULeb128(int value) {
+        if (value < 0) {
+            throw new IllegalStateException(
+                    "Out of range small uleb128 in class_data_item");
+        }
+        return value;
+    }
+
     private List<FieldDef> readFieldDefList(
-            RandomInput in, int count, IntSupplier hiddenapi,
+            int[] entries, int offset, int count, IntSupplier hiddenapi,
             IntMap<NavigableSet<Annotation>> annotations_map,
             List<EncodedValue> static_values, boolean static_list) {
         List<FieldDef> out = new ArrayList<>(count);
         int index = 0;
-        for (int i = 0; i < count; i++) {
-            index += in.readSmallULeb128();
+        for (int i = 0; i < count; i++, offset += 2) {
+            index += checkSmallULeb128(entries[offset]);
             var id = getField(index);
-            int access_flags = in.readULeb128();
+            int access_flags = entries[offset + 1];
             int hiddenapi_flags;
             if (options.getTargetApi() == 28) {
                 long common = LegacyHiddenApiFlags.decrypt(access_flags);
@@ -1102,6 +1258,60 @@ public class DexReader implements DexIO.DexReaderCache {
                 outs_size, debug_info, instructions, tries);
     }
 
+    // Reads only the header of code item, without instructions and tries
+    private int readCodeRegisterCount(int offset) {
+        var in = dataAt(offset);
+        if (!isCompact()) {
+            return in.readUShort();
+        }
+        RandomInput preheader = in.duplicate();
+
+        int fields = in.readUShort();
+        int insns_count_and_flags = in.readUShort();
+
+        int registers_size = (fields >> kRegistersSizeShift) & 0xF;
+        int ins_size = (fields >> kInsSizeShift) & 0xF;
+
+        // The preheader is read backward in the same order as in readCodeItem
+        if ((insns_count_and_flags & kFlagPreHeaderInsnsSize) != 0) {
+            readUShortBackward(preheader);
+            readUShortBackward(preheader);
+        }
+        if ((insns_count_and_flags & kFlagPreHeaderRegistersSize) != 0) {
+            registers_size += readUShortBackward(preheader);
+        }
+        if ((insns_count_and_flags & kFlagPreHeaderInsSize) != 0) {
+            ins_size += readUShortBackward(preheader);
+        }
+        return registers_size + ins_size;
+    }
+
+    private int readCodeUnitCount(int offset) {
+        var in = dataAt(offset);
+        if (!isCompact()) {
+            in.addPosition(4 * 2 + 4); // sizes and debug_info_off
+            return in.readSmallUInt();
+        }
+        RandomInput preheader = in.duplicate();
+
+        in.readUShort(); // fields
+        int insns_count_and_flags = in.readUShort();
+
+        int insns_count = insns_count_and_flags >> kInsnsSizeShift;
+        if ((insns_count_and_flags & kFlagPreHeaderInsnsSize) != 0) {
+            insns_count += readUShortBackward(preheader) +
+                    (readUShortBackward(preheader) << 16);
+        }
+        return insns_count;
+    }
+
+    private int readCodeDebugInfoOffset(int offset) {
+        assert !isCompact();
+        var in = dataAt(offset);
+        in.addPosition(4 * 2); // registers, ins, outs and tries sizes
+        return in.readSmallUInt();
+    }
+
     public CodeItem getCodeItem(int offset) {
         return code_cache.apply(offset);
     }
@@ -1157,16 +1367,40 @@ public class DexReader implements DexIO.DexReaderCache {
         return debug_info_offset;
     }
 
+    private MethodDef readLazyMethodDef(
+            MethodId id, int index, int access_flags, int hiddenapi_flags, int code_off,
+            IntMap<NavigableSet<Annotation>> method_annotations,
+            IntMap<List<NavigableSet<Annotation>>> parameter_annotations) {
+        int debug_info_off;
+        if (!options.hasDebugInfo()) {
+            debug_info_off = NO_OFFSET;
+        } else if (isCompact()) {
+            debug_info_off = getDebugInfoOffset(index);
+        } else {
+            debug_info_off = readCodeDebugInfoOffset(code_off);
+        }
+        // Parameter names are part of the method definition, so they are read now
+        List<Parameter> parameters = toParamaterList(
+                debug_info_off == NO_OFFSET ? null : readDebugParameterNames(debug_info_off),
+                id.getParameterTypes(), parameter_annotations.get(index, List.of()));
+        var implementation = MethodImplementation.lazy(readCodeRegisterCount(code_off),
+                () -> toImplementation(getCodeItem(code_off), debug_info_off == NO_OFFSET ?
+                        null : getDebugInfo(debug_info_off)));
+        return MethodDef.raw(id.getName(), id.getReturnType(), parameters,
+                access_flags, hiddenapi_flags, implementation,
+                method_annotations.get(index, Collections.emptyNavigableSet()));
+    }
+
     private List<MethodDef> readMethodDefList(
-            RandomInput in, int count, IntSupplier hiddenapi,
+            int[] entries, int offset, int count, IntSupplier hiddenapi,
             IntMap<NavigableSet<Annotation>> method_annotations,
             IntMap<List<NavigableSet<Annotation>>> parameter_annotations) {
         List<MethodDef> out = new ArrayList<>(count);
         int index = 0;
-        for (int i = 0; i < count; i++) {
-            index += in.readSmallULeb128();
+        for (int i = 0; i < count; i++, offset += 3) {
+            index += checkSmallULeb128(entries[offset]);
             var id = getMethod(index);
-            int access_flags = in.readULeb128();
+            int access_flags = entries[offset + 1];
             int hiddenapi_flags;
             if (options.getTargetApi() == 28) {
                 long common = LegacyHiddenApiFlags.decrypt(access_flags);
@@ -1177,7 +1411,12 @@ public class DexReader implements DexIO.DexReaderCache {
                 hiddenapi_flags = options.hasHiddenApiFlags() ?
                         hiddenapi.getAsInt() : 0;
             }
-            int code_off = in.readSmallULeb128();
+            int code_off = checkSmallULeb128(entries[offset + 2]);
+            if (code_off != NO_OFFSET && options.isLazyCodeDecoding()) {
+                out.add(readLazyMethodDef(id, index, access_flags, hiddenapi_flags, code_off,
+                        method_annotations, parameter_annotations));
+                continue;
+            }
             var code = code_off == NO_OFFSET ? null : getCodeItem(code_off);
             DebugInfo debug_info;
             if (code == null || !options.hasDebugInfo()) {
@@ -1241,15 +1480,21 @@ public class DexReader implements DexIO.DexReaderCache {
             int instance_fields_size = class_data.readSmallULeb128();
             int direct_methods_size = class_data.readSmallULeb128();
             int virtual_methods_size = class_data.readSmallULeb128();
+            int[] entries = readClassDataEntries(class_data,
+                    (long) static_fields_size + instance_fields_size,
+                    (long) direct_methods_size + virtual_methods_size);
+            int instance_fields_offset = static_fields_size * 2;
+            int direct_methods_offset = instance_fields_offset + instance_fields_size * 2;
+            int virtual_methods_offset = direct_methods_offset + direct_methods_size * 3;
             var hiddenapi = getHiddenApiIterator(index);
-            static_fields = readFieldDefList(class_data, static_fields_size,
+            static_fields = readFieldDefList(entries, 0, static_fields_size,
                     hiddenapi, annotations.field_annotations(), static_values, true);
-            instance_fields = readFieldDefList(class_data, instance_fields_size,
+            instance_fields = readFieldDefList(entries, instance_fields_offset, instance_fields_size,
                     hiddenapi, annotations.field_annotations(), null, false);
-            direct_methods = readMethodDefList(class_data, direct_methods_size, hiddenapi,
-                    annotations.method_annotations(), annotations.parameter_annotations());
-            virtual_methods = readMethodDefList(class_data, virtual_methods_size, hiddenapi,
-                    annotations.method_annotations(), annotations.parameter_annotations());
+            direct_methods = readMethodDefList(entries, direct_methods_offset, direct_methods_size,
+                    hiddenapi, annotations.method_annotations(), annotations.parameter_annotations());
+            virtual_methods = readMethodDefList(entries, virtual_methods_offset, virtual_methods_size,
+                    hiddenapi, annotations.method_annotations(), annotations.parameter_annotations());
         }
 
         return ClassDef.raw(clazz, access_flags, superclass, interfaces, source_file,
@@ -1263,6 +1508,183 @@ public class DexReader implements DexIO.DexReaderCache {
         return class_section;
     }
 
+    private long readCodeUnitCount(int[] entries, int offset, int count) {
+        long out = 0;
+        for (int i = 0; i < count; i++, offset += 3) {
+            // method_idx_diff and access_flags are skipped
+            int code_off = checkSmallULeb128(entries[offset + 2]);
+            if (code_off != NO_OFFSET) {
+                out += readCodeUnitCount(code_off);
+            }
+        }
+        return out;
+    }
+
+    private boolean isLegacy() {
+        return version == DEX013 || version == DEX009;
+    }
+
+    private RandomInput stringDataAt(int index) {
+        checkIndex(index, getStringCount(), "string");
+        int start = mainAt(header_offset + STRING_START_OFFSET).readSmallUInt();
+        return dataAt(mainAt(start + index * STRING_ID_SIZE).readSmallUInt());
+    }
+
+    @Override
+    public int compareString(int index, String value) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.compareString(index, value);
+        }
+        Objects.requireNonNull(value);
+        return MUTF8.compareMUTF8(stringDataAt(index), value);
+    }
+
+    @Override
+    public boolean stringEquals(int index, String value) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.stringEquals(index, value);
+        }
+        Objects.requireNonNull(value);
+        return MUTF8.equalsMUTF8(stringDataAt(index), value);
+    }
+
+    @Override
+    public boolean stringStartsWith(int index, String prefix) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.stringStartsWith(index, prefix);
+        }
+        Objects.requireNonNull(prefix);
+        return MUTF8.startsWithMUTF8(stringDataAt(index), prefix);
+    }
+
+    @Override
+    public int stringHashCode(int index) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.stringHashCode(index);
+        }
+        return MUTF8.hashMUTF8(stringDataAt(index));
+    }
+
+    // String ids are sorted by contents, so the strings are compared in place
+    @Override
+    public int findStringIndex(String value) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.findStringIndex(value);
+        }
+        Objects.requireNonNull(value);
+        int low = 0;
+        int high = getStringCount() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareString(mid, value);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Type ids are sorted by string index
+    @Override
+    public int findTypeIndex(String descriptor) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.findTypeIndex(descriptor);
+        }
+        int string_idx = findStringIndex(descriptor);
+        if (string_idx < 0) {
+            return -1;
+        }
+        int start = mainAt(header_offset + TYPE_START_OFFSET).readSmallUInt();
+        int low = 0;
+        int high = getTypeCount() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = mainAt(start + mid * TYPE_ID_SIZE).readSmallUInt();
+            if (value < string_idx) {
+                low = mid + 1;
+            } else if (value > string_idx) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int[] classIndexByType() {
+        var out = class_by_type;
+        if (out == null) {
+            out = new int[getTypeCount()];
+            Arrays.fill(out, -1);
+            int start = mainAt(header_offset + CLASS_START_OFFSET).readSmallUInt();
+            // In reverse order, so the first definition of a type wins
+            for (int i = getClassCount() - 1; i >= 0; i--) {
+                int type_idx = mainAt(start + i * CLASS_DEF_SIZE).readSmallUInt();
+                checkIndex(type_idx, out.length, "type");
+                out[type_idx] = i;
+            }
+            class_by_type = out;
+        }
+        return out;
+    }
+
+    // Class defs are not sorted by type, so the index is built on first use
+    @Override
+    public int findClassIndex(String descriptor) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.findClassIndex(descriptor);
+        }
+        int type_idx = findTypeIndex(descriptor);
+        return type_idx < 0 ? -1 : classIndexByType()[type_idx];
+    }
+
+    @Override
+    public ClassSummary getClassSummary(int index) {
+        if (isLegacy()) {
+            return DexIO.DexReaderCache.super.getClassSummary(index);
+        }
+        checkIndex(index, getClassCount(), "class");
+        int classes_offset = mainAt(header_offset + CLASS_START_OFFSET).readSmallUInt();
+        var in = mainAt(classes_offset + index * CLASS_DEF_SIZE);
+
+        TypeId clazz = getType(in.readSmallUInt());
+        int access_flags = in.readInt();
+        int superclass_idx = in.readSmallUIntWithM1();
+        TypeId superclass = superclass_idx == NO_INDEX ?
+                null : getType(superclass_idx);
+        int interfaces_off = in.readSmallUInt();
+        List<TypeId> interfaces = interfaces_off == NO_OFFSET ?
+                List.of() : getTypeList(interfaces_off);
+        in.addPosition(4 + 4); // source_file_idx and annotations_off
+        int class_data_off = in.readSmallUInt();
+
+        int static_fields_size = 0;
+        int instance_fields_size = 0;
+        int direct_methods_size = 0;
+        int virtual_methods_size = 0;
+        long code_units = 0;
+        if (class_data_off != NO_OFFSET) {
+            RandomInput class_data = dataAt(class_data_off);
+            static_fields_size = class_data.readSmallULeb128();
+            instance_fields_size = class_data.readSmallULeb128();
+            direct_methods_size = class_data.readSmallULeb128();
+            virtual_methods_size = class_data.readSmallULeb128();
+            int[] entries = readClassDataEntries(class_data,
+                    (long) static_fields_size + instance_fields_size,
+                    (long) direct_methods_size + virtual_methods_size);
+            code_units = readCodeUnitCount(entries,
+                    (static_fields_size + instance_fields_size) * 2,
+                    direct_methods_size + virtual_methods_size);
+        }
+        return new ClassSummary(clazz, access_flags, superclass, interfaces,
+                static_fields_size, instance_fields_size,
+                direct_methods_size, virtual_methods_size, code_units);
+    }
+
     public IntFunction<IntSupplier> readHiddenApiSection(int offset) {
         final IntSupplier zero = () -> 0;
         return offset == NO_OFFSET ? ignored -> zero : class_idx -> {
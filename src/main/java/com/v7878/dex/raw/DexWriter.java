@@ -57,6 +57,7 @@ import static com.v7878.dex.DexOffsets.METHOD_ID_SIZE;
 import static com.v7878.dex.DexOffsets.PROTO_ID_SIZE;
 import static com.v7878.dex.DexOffsets.SIGNATURE_DATA_START_OFFSET;
 import static com.v7878.dex.DexOffsets.SIGNATURE_OFFSET;
+import static com.v7878.dex.DexOffsets.SIGNATURE_SIZE;
 import static com.v7878.dex.DexOffsets.STRING_ID_SIZE;
 import static com.v7878.dex.DexOffsets.TRY_ITEM_ALIGNMENT;
 import static com.v7878.dex.DexOffsets.TRY_ITEM_SIZE;
@@ -88,6 +89,7 @@ import com.v7878.dex.WriteOptions;
 import com.v7878.dex.immutable.Annotation;
 import com.v7878.dex.immutable.AnnotationElement;
 import com.v7878.dex.immutable.CallSiteId;
+import com.v7878.dex.immutable.ClassDef;
 import com.v7878.dex.immutable.CommonAnnotation;
 import com.v7878.dex.immutable.Dex;
 import com.v7878.dex.immutable.FieldId;
@@ -134,8 +136,9 @@ import com.v7878.dex.raw.DexCollector.FieldDefContainer;
 import com.v7878.dex.raw.DexCollector.MethodDefContainer;
 import com.v7878.dex.raw.DexCollector.TryBlockContainer;
 import com.v7878.dex.raw.SharedData.StringPosition;
-import com.v7878.dex.util.CollectionUtils;
 import com.v7878.dex.util.EmptyArrays;
+import com.v7878.dex.util.MathUtils;
+import com.v7878.dex.util.ParallelUtils;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -147,6 +150,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.Adler32;
@@ -236,6 +242,15 @@ public class DexWriter implements StringIndexer {
     private final CallSiteIdContainer[] call_sites;
     private final MethodHandleId[] method_handles;
 
+    // Index tables are built once after collection to resolve references in constant time
+    private final Map<String, Integer> string_indices;
+    private final Map<TypeId, Integer> type_indices;
+    private final Map<ProtoId, Integer> proto_indices;
+    private final Map<FieldId, Integer> field_indices;
+    private final Map<MethodId, Integer> method_indices;
+    private final Map<CallSiteId, Integer> call_site_indices;
+    private final Map<MethodHandleId, Integer> method_handle_indices;
+
     private final Map<List<TypeId>, Integer> type_lists;
     private final Map<EncodedArray, Integer> encoded_arrays;
     private final Map<DebugInfo, Integer> debug_infos;
@@ -306,6 +321,59 @@ public class DexWriter implements StringIndexer {
         return out.toArray(EmptyArrays.CLASS_DEF_CONTAINER);
     }
 
+    private Executor parallelExecutor() {
+        var executor = options.getParallelExecutor();
+        return executor == null ? ForkJoinPool.commonPool() : executor;
+    }
+
+    // Arrays.parallelSort() always runs on the common pool
+    private boolean isParallelSort() {
+        return options.isParallelWrite() && options.getParallelExecutor() == null;
+    }
+
+    private static void fillStringsParallel(StringCollector collector, List<ClassDef> classes,
+                                            boolean debug, Executor executor) {
+        int count = classes.size();
+        int chunk = ParallelUtils.chunkSize(count);
+        var locals = new StringCollector[ParallelUtils.chunkCount(count, chunk)];
+        ParallelUtils.forEachRange(count, chunk, executor, (from, to) -> {
+            var local = new StringCollector(new SharedData(), debug);
+            for (int i = from; i < to; i++) {
+                local.fillClassDef(classes.get(i));
+            }
+            locals[from / chunk] = local;
+        });
+        // The collected strings are sorted later, so the merge order does not matter
+        for (var local : locals) {
+            collector.addAll(local);
+        }
+    }
+
+    private static void fillDexParallel(DexCollector collector,
+                                        List<ClassDef> classes, Executor executor) {
+        int count = classes.size();
+        var containers = new ClassDefContainer[count];
+        ParallelUtils.forEachRange(count, ParallelUtils.chunkSize(count),
+                executor, (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        containers[i] = collector.toContainer(classes.get(i));
+                    }
+                });
+        // Data sections are written in the iteration order of hash maps,
+        //  so they must be filled in the same order as in sequential mode
+        for (var container : containers) {
+            collector.addClassDef(container);
+        }
+    }
+
+    private static <T, K> Map<K, Integer> toIndexMap(T[] array, Function<T, K> key) {
+        var out = new HashMap<K, Integer>((int) (array.length / 0.75f) + 1);
+        for (int i = 0; i < array.length; i++) {
+            out.put(key.apply(array[i]), i);
+        }
+        return out;
+    }
+
     public DexWriter(WriteOptions options, SharedData shared_data,
                      RandomIO io, Dex dexfile, int header_offset) {
         assert io.position() == 0;
@@ -339,14 +407,24 @@ public class DexWriter implements StringIndexer {
         }
 
         var scollector = new StringCollector(shared_data, options.hasDebugInfo());
-        scollector.fillDex(dexfile);
+        if (options.isParallelWrite()) {
+            fillStringsParallel(scollector, dexfile.getClasses(),
+                    options.hasDebugInfo(), parallelExecutor());
+        } else {
+            scollector.fillDex(dexfile);
+        }
 
         // The number of strings is limited to 32 bits, so no checks are needed.
-        strings = scollector.strings.toArray(EmptyArrays.STRING);
+        strings = scollector.toSortedArray(isParallelSort());
+        string_indices = toIndexMap(strings, value -> value.value);
 
         var collector = new DexCollector(this, options.getStringFix(),
                 isCompact(), options.hasDebugInfo());
-        collector.fillDex(dexfile);
+        if (options.isParallelWrite()) {
+            fillDexParallel(collector, dexfile.getClasses(), parallelExecutor());
+        } else {
+            collector.fillDex(dexfile);
+        }
 
         types = collector.types.toArray(EmptyArrays.TYPE_ID);
         checkSizeLimit(types.length, "type");
@@ -377,6 +455,13 @@ public class DexWriter implements StringIndexer {
         method_handles = collector.method_handles.toArray(EmptyArrays.METHOD_HANDLE_ID);
         checkSizeLimit(method_handles.length, "method handle");
 
+        type_indices = toIndexMap(types, Function.identity());
+        proto_indices = toIndexMap(protos, Function.identity());
+        field_indices = toIndexMap(fields, Function.identity());
+        method_indices = toIndexMap(methods, Function.identity());
+        call_site_indices = toIndexMap(call_sites, CallSiteIdContainer::value);
+        method_handle_indices = toIndexMap(method_handles, Function.identity());
+
         class_defs = options.isClassSorting() ? sort(collector.class_defs) :
                 collector.class_defs.toArray(EmptyArrays.CLASS_DEF_CONTAINER);
 
@@ -482,25 +567,34 @@ public class DexWriter implements StringIndexer {
         if (isCompact()) {
             // TODO: How are the checksum and signature fields calculated for compact dex?
         } else {
-            main_buffer.position(map.header_off + SIGNATURE_OFFSET);
             MessageDigest md;
             try {
                 md = MessageDigest.getInstance("SHA-1");
             } catch (NoSuchAlgorithmException e) {
                 throw new RuntimeException("Unable to find SHA-1 MessageDigest", e);
             }
-            byte[] signature = md.digest(main_buffer
-                    .duplicateAt(map.header_off + SIGNATURE_DATA_START_OFFSET)
-                    .readByteArray(map.file_size - SIGNATURE_DATA_START_OFFSET));
+            // The checksum also covers the signature, so the signed data is hashed
+            //  by both in a single pass and the signature is prepended to the checksum later
+            Adler32 adler = new Adler32();
+            int signed_length = map.file_size - SIGNATURE_DATA_START_OFFSET;
+            main_buffer.duplicateAt(map.header_off + SIGNATURE_DATA_START_OFFSET)
+                    .readChunks(signed_length, (array, offset, length) -> {
+                        md.update(array, offset, length);
+                        adler.update(array, offset, length);
+                    });
+            byte[] signature = md.digest();
+            main_buffer.position(map.header_off + SIGNATURE_OFFSET);
             main_buffer.writeByteArray(signature);
 
+            assert CHECKSUM_DATA_START_OFFSET == SIGNATURE_OFFSET;
+            assert SIGNATURE_OFFSET + SIGNATURE_SIZE == SIGNATURE_DATA_START_OFFSET;
+            Adler32 prefix = new Adler32();
+            prefix.update(signature, 0, SIGNATURE_SIZE);
+            int checksum = MathUtils.adler32Combine((int) prefix.getValue(),
+                    (int) adler.getValue(), signed_length);
+
             main_buffer.position(map.header_off + CHECKSUM_OFFSET);
-            Adler32 adler = new Adler32();
-            int adler_length = map.file_size - CHECKSUM_DATA_START_OFFSET;
-            adler.update(main_buffer
-                    .duplicateAt(map.header_off + CHECKSUM_DATA_START_OFFSET)
-                    .readByteArray(adler_length), 0, adler_length);
-            main_buffer.writeInt((int) adler.getValue());
+            main_buffer.writeInt(checksum);
         }
     }
 
@@ -552,9 +646,8 @@ public class DexWriter implements StringIndexer {
 
     @Override
     public int getStringIndex(String value) {
-        int out = CollectionUtils.binarySearch(strings, value,
-                (c, v) -> c.value.compareTo(v));
-        if (out < 0) {
+        Integer out = string_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find string \"" + value + "\"");
         }
@@ -562,8 +655,8 @@ public class DexWriter implements StringIndexer {
     }
 
     public int getTypeIndex(TypeId value) {
-        int out = CollectionUtils.binarySearch(types, value);
-        if (out < 0) {
+        Integer out = type_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find type \"" + value + "\"");
         }
@@ -571,8 +664,8 @@ public class DexWriter implements StringIndexer {
     }
 
     public int getProtoIndex(ProtoId value) {
-        int out = CollectionUtils.binarySearch(protos, value);
-        if (out < 0) {
+        Integer out = proto_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find proto \"" + value + "\"");
         }
@@ -580,8 +673,8 @@ public class DexWriter implements StringIndexer {
     }
 
     public int getFieldIndex(FieldId value) {
-        int out = CollectionUtils.binarySearch(fields, value);
-        if (out < 0) {
+        Integer out = field_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find field \"" + value + "\"");
         }
@@ -589,8 +682,8 @@ public class DexWriter implements StringIndexer {
     }
 
     public int getMethodIndex(MethodId value) {
-        int out = CollectionUtils.binarySearch(methods, value);
-        if (out < 0) {
+        Integer out = method_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find method \"" + value + "\"");
         }
@@ -598,9 +691,8 @@ public class DexWriter implements StringIndexer {
     }
 
     public int getCallSiteIndex(CallSiteId value) {
-        int out = CollectionUtils.binarySearch(call_sites, value,
-                (c, v) -> c.value().compareTo(v));
-        if (out < 0) {
+        Integer out = call_site_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find call site \"" + value + "\"");
         }
@@ -608,8 +700,8 @@ public class DexWriter implements StringIndexer {
     }
 
     public int getMethodHandleIndex(MethodHandleId value) {
-        int out = CollectionUtils.binarySearch(method_handles, value);
-        if (out < 0) {
+        Integer out = method_handle_indices.get(value);
+        if (out == null) {
             throw new IllegalArgumentException(
                     "Unable to find method handle \"" + value + "\"");
         }
@@ -965,7 +1057,7 @@ public class DexWriter implements StringIndexer {
         if (!strings.isEmpty()) {
             shared_data.string_data_items_off = data_buffer.position();
         }
-        for (var value : strings.values()) {
+        for (var value : SharedData.sort(strings.values(), isParallelSort())) {
             writeStringData(value);
         }
     }
@@ -1269,8 +1361,11 @@ public class DexWriter implements StringIndexer {
     }
 
     public void writeDebugInfo(Map.Entry<DebugInfo, Integer> entry) {
-        var value = entry.getKey();
-        int start = data_buffer.position();
+        entry.setValue(writeDebugInfo(data_buffer, entry.getKey()));
+    }
+
+    private int writeDebugInfo(RandomOutput out, DebugInfo value) {
+        int start = out.position();
 
         int[] line_start = {1};
         ByteArrayIO dbg_sequence = new ByteArrayIO();
@@ -1280,16 +1375,16 @@ public class DexWriter implements StringIndexer {
         var names = value.parameter_names();
         var names_size = names.size();
 
-        data_buffer.writeULeb128(line_start[0]);
-        data_buffer.writeULeb128(names_size);
+        out.writeULeb128(line_start[0]);
+        out.writeULeb128(names_size);
         for (int i = 0; i < names_size; i++) {
             var name = names.get(i);
             var index = name == null ? NO_INDEX : getStringIndex(name);
-            data_buffer.writeULeb128(index + 1);
+            out.writeULeb128(index + 1);
         }
-        dbg_sequence.writeTo(data_buffer);
+        dbg_sequence.writeTo(out);
 
-        entry.setValue(start);
+        return start;
     }
 
     public void writeDebugInfoSection() {
@@ -1298,8 +1393,12 @@ public class DexWriter implements StringIndexer {
             map.debug_info_items_off = data_buffer.position();
             map.debug_info_items_size = size;
         }
-        for (var tmp : debug_infos.entrySet()) {
-            writeDebugInfo(tmp);
+        if (options.isParallelWrite()) {
+            writeSectionParallel(debug_infos, 1, this::writeDebugInfo, null);
+        } else {
+            for (var tmp : debug_infos.entrySet()) {
+                writeDebugInfo(tmp);
+            }
         }
         if (!isCompact()) {
             fixDebugInfoOffsets();
@@ -1316,7 +1415,7 @@ public class DexWriter implements StringIndexer {
         return has_payloads ? ~out : out;
     }
 
-    private int writePreHeader(int registers_size, int ins_size,
+    private int writePreHeader(RandomOutput out, int registers_size, int ins_size,
                                int outs_size, int tries_size,
                                int insns_count, boolean has_payloads) {
         registers_size -= ins_size;
@@ -1334,55 +1433,55 @@ public class DexWriter implements StringIndexer {
 
         if (has_payloads) {
             boolean odd_shorts = (tries_size != 0) ^ (outs_size != 0) ^ (ins_size != 0)
-                    ^ (registers_size != 0) ^ ((data_buffer.position() & 0b10) != 0);
+                    ^ (registers_size != 0) ^ ((out.position() & 0b10) != 0);
             if (odd_shorts) {
-                data_buffer.addPosition(2);
+                out.addPosition(2);
             }
         }
 
         if (tries_size != 0) {
-            data_buffer.writeShort(tries_size);
+            out.writeShort(tries_size);
             insns_count_and_flags |= kFlagPreHeaderTriesSize;
         }
         if (outs_size != 0) {
-            data_buffer.writeShort(outs_size);
+            out.writeShort(outs_size);
             insns_count_and_flags |= kFlagPreHeaderOutsSize;
         }
         if (ins_size != 0) {
-            data_buffer.writeShort(ins_size);
+            out.writeShort(ins_size);
             insns_count_and_flags |= kFlagPreHeaderInsSize;
         }
         if (registers_size != 0) {
-            data_buffer.writeShort(registers_size);
+            out.writeShort(registers_size);
             insns_count_and_flags |= kFlagPreHeaderRegistersSize;
         }
         if (insns_count != 0) {
             insns_count_and_flags |= kFlagPreHeaderInsnsSize;
-            data_buffer.writeShort(insns_count >> 16);
-            data_buffer.writeShort(insns_count);
+            out.writeShort(insns_count >> 16);
+            out.writeShort(insns_count);
         }
 
-        int code_item_start = data_buffer.position();
+        int code_item_start = out.position();
 
-        data_buffer.writeShort(fields);
-        data_buffer.writeShort(insns_count_and_flags);
+        out.writeShort(fields);
+        out.writeShort(insns_count_and_flags);
 
         return code_item_start;
     }
 
-    public void writeCatchHandler(CatchHandler value) {
+    public void writeCatchHandler(RandomOutput out, CatchHandler value) {
         var catch_all_addr = value.catch_all_addr();
         var elements = value.elements();
         if (elements.isEmpty() && catch_all_addr == null) {
             throw new IllegalStateException("Unable to write empty catch handler");
         }
-        data_buffer.writeSLeb128(catch_all_addr == null ? elements.size() : -elements.size());
+        out.writeSLeb128(catch_all_addr == null ? elements.size() : -elements.size());
         for (var tmp : elements) {
-            data_buffer.writeULeb128(getTypeIndex(tmp.getExceptionType()));
-            data_buffer.writeULeb128(tmp.getAddress());
+            out.writeULeb128(getTypeIndex(tmp.getExceptionType()));
+            out.writeULeb128(tmp.getAddress());
         }
         if (catch_all_addr != null) {
-            data_buffer.writeULeb128(catch_all_addr);
+            out.writeULeb128(catch_all_addr);
         }
     }
 
@@ -1399,8 +1498,11 @@ public class DexWriter implements StringIndexer {
     }
 
     public void writeCodeItem(Map.Entry<CodeContainer, Integer> entry) {
-        var value = entry.getKey();
-        data_buffer.alignPosition(isCompact() ? COMPACT_CODE_ITEM_ALIGNMENT : CODE_ITEM_ALIGNMENT);
+        entry.setValue(writeCodeItem(data_buffer, entry.getKey()));
+    }
+
+    private int writeCodeItem(RandomIO out, CodeContainer value) {
+        out.alignPosition(isCompact() ? COMPACT_CODE_ITEM_ALIGNMENT : CODE_ITEM_ALIGNMENT);
 
         var insns = value.value.getInstructions();
         var tries = value.tries;
@@ -1416,53 +1518,53 @@ public class DexWriter implements StringIndexer {
         int code_item_start;
 
         if (isCompact()) {
-            code_item_start = writePreHeader(registers_size, ins_size,
+            code_item_start = writePreHeader(out, registers_size, ins_size,
                     outs_size, tries_size, insns_count, has_payloads);
         } else {
-            code_item_start = data_buffer.position();
+            code_item_start = out.position();
 
-            data_buffer.writeShort(registers_size);
-            data_buffer.writeShort(ins_size);
-            data_buffer.writeShort(outs_size);
-            data_buffer.writeShort(tries_size);
+            out.writeShort(registers_size);
+            out.writeShort(ins_size);
+            out.writeShort(outs_size);
+            out.writeShort(tries_size);
             if (value.debug_info == null) {
                 value.debug_info_offset = NO_OFFSET;
-                data_buffer.writeInt(NO_OFFSET);
+                out.writeInt(NO_OFFSET);
             } else {
                 // The correct offset will be written later
-                value.debug_info_offset = data_buffer.position();
-                data_buffer.addPosition(4);
+                value.debug_info_offset = out.position();
+                out.addPosition(4);
             }
-            data_buffer.writeInt(insns_count);
+            out.writeInt(insns_count);
         }
 
-        int insns_start = data_buffer.position();
+        int insns_start = out.position();
         for (var tmp : insns) {
-            InstructionWriter.writeInstruction(tmp, this, data_buffer);
+            InstructionWriter.writeInstruction(tmp, this, out);
         }
-        int insns_size = data_buffer.position() - insns_start;
+        int insns_size = out.position() - insns_start;
 
         assert insns_size == insns_count * 2 : String.format(
                 "Calculated instructions size(%s) != written bytes(%s)",
                 insns_count * 2, insns_size);
 
         if (tries_size != 0) {
-            data_buffer.fillZerosToAlignment(TRY_ITEM_ALIGNMENT);
+            out.fillZerosToAlignment(TRY_ITEM_ALIGNMENT);
 
-            var tries_buffer = data_buffer.duplicate();
-            data_buffer.addPosition(TRY_ITEM_SIZE * tries_size);
+            var tries_buffer = out.duplicate();
+            out.addPosition(TRY_ITEM_SIZE * tries_size);
 
             HashMap<CatchHandler, Integer> handlers = new HashMap<>(tries_size);
             for (var tmp : tries) {
                 handlers.put(tmp.handler(), null);
             }
 
-            int handlers_start = data_buffer.position();
-            data_buffer.writeULeb128(handlers.size());
+            int handlers_start = out.position();
+            out.writeULeb128(handlers.size());
 
             for (var tmp : handlers.entrySet()) {
-                int handler_offset = data_buffer.position() - handlers_start;
-                writeCatchHandler(tmp.getKey());
+                int handler_offset = out.position() - handlers_start;
+                writeCatchHandler(out, tmp.getKey());
                 tmp.setValue(handler_offset);
             }
 
@@ -1471,7 +1573,7 @@ public class DexWriter implements StringIndexer {
             }
         }
 
-        entry.setValue(code_item_start);
+        return code_item_start;
     }
 
     public void fixDebugInfoOffsets() {
@@ -1493,8 +1595,63 @@ public class DexWriter implements StringIndexer {
             map.code_items_off = data_buffer.position();
             map.code_items_size = size;
         }
-        for (var tmp : code_items.entrySet()) {
-            writeCodeItem(tmp);
+        // Compact code items depend on the absolute position, see writePreHeader
+        if (options.isParallelWrite() && !isCompact()) {
+            writeSectionParallel(code_items, CODE_ITEM_ALIGNMENT, this::writeCodeItem,
+                    (value, base) -> {
+                        if (value.debug_info_offset != NO_OFFSET) {
+                            value.debug_info_offset += base;
+                        }
+                    });
+        } else {
+            for (var tmp : code_items.entrySet()) {
+                writeCodeItem(tmp);
+            }
+        }
+    }
+
+    private interface ItemWriter<T> {
+        int write(RandomIO out, T value);
+    }
+
+    private interface ItemRelocator<T> {
+        void relocate(T value, int base);
+    }
+
+    private record EncodedChunk(ByteArrayIO data, int[] offsets) {
+    }
+
+    // Items are encoded into separate buffers concurrently and then copied
+    //  sequentially, which gives exactly the same layout as writing them in place
+    private <T> void writeSectionParallel(Map<T, Integer> section, int alignment,
+                                          ItemWriter<T> writer, ItemRelocator<T> relocator) {
+        var entries = new ArrayList<>(section.entrySet());
+        int count = entries.size();
+        int chunk = ParallelUtils.chunkSize(count);
+        var chunks = new EncodedChunk[ParallelUtils.chunkCount(count, chunk)];
+        ParallelUtils.forEachRange(count, chunk, parallelExecutor(), (from, to) -> {
+            var out = new ByteArrayIO();
+            var offsets = new int[to - from];
+            for (int i = from; i < to; i++) {
+                offsets[i - from] = writer.write(out, entries.get(i).getKey());
+            }
+            chunks[from / chunk] = new EncodedChunk(out, offsets);
+        });
+        for (int i = 0; i < chunks.length; i++) {
+            var data = chunks[i].data();
+            var offsets = chunks[i].offsets();
+            // Chunk buffers start at an aligned position, so relative alignment is preserved
+            data_buffer.alignPosition(alignment);
+            int base = data_buffer.position();
+            data.position(0);
+            data.writeTo(data_buffer);
+            for (int j = 0; j < offsets.length; j++) {
+                var entry = entries.get(i * chunk + j);
+                entry.setValue(base + offsets[j]);
+                if (relocator != null) {
+                    relocator.relocate(entry.getKey(), base);
+                }
+            }
         }
     }
 
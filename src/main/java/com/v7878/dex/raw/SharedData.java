@@ -1,8 +1,12 @@
 package com.v7878.dex.raw;
 
-import java.util.NavigableMap;
+import com.v7878.dex.util.EmptyArrays;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
 
 public class SharedData {
     public static class StringPosition implements Comparable<StringPosition> {
@@ -31,15 +35,26 @@ public class SharedData {
         }
     }
 
-    public final NavigableMap<String, StringPosition> strings;
+    // Strings are deduplicated by hash and sorted only once, when they are written
+    public final Map<String, StringPosition> strings;
 
     public int string_data_items_off;
 
     public SharedData() {
-        strings = new TreeMap<>();
+        strings = new HashMap<>();
     }
 
     public StringPosition addString(String value) {
         return strings.computeIfAbsent(value, StringPosition::new);
     }
+
+    public static StringPosition[] sort(Collection<StringPosition> strings, boolean parallel) {
+        var out = strings.toArray(EmptyArrays.STRING);
+        if (parallel) {
+            Arrays.parallelSort(out);
+        } else {
+            Arrays.sort(out);
+        }
+        return out;
+    }
 }
@@ -35,13 +35,14 @@ import com.v7878.dex.immutable.value.EncodedType;
 import com.v7878.dex.immutable.value.EncodedValue;
 import com.v7878.dex.raw.SharedData.StringPosition;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
-import java.util.TreeSet;
 
 public class StringCollector {
-    public final NavigableSet<StringPosition> strings;
+    public final Map<String, StringPosition> strings;
     private final SharedData shared_data;
     private final boolean debug;
 
@@ -49,11 +50,23 @@ public class StringCollector {
         this.shared_data = shared_data;
         this.debug = debug;
 
-        strings = new TreeSet<>();
+        strings = new HashMap<>();
     }
 
     public void addString(String value) {
-        strings.add(shared_data.addString(value));
+        if (!strings.containsKey(value)) {
+            strings.put(value, shared_data.addString(value));
+        }
+    }
+
+    public void addAll(StringCollector other) {
+        for (var tmp : other.strings.keySet()) {
+            addString(tmp);
+        }
+    }
+
+    public StringPosition[] toSortedArray(boolean parallel) {
+        return SharedData.sort(strings.values(), parallel);
     }
 
     public void fillType(TypeId value) {
@@ -2,13 +2,21 @@ package com.v7878.dex.util;
 
 import java.util.AbstractList;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public abstract class CachedFixedSizeList<T> extends AbstractList<T> {
     private final int size;
     private T[] data;
+    // Not null only in concurrent mode
+    private final AtomicReferenceArray<T> shared_data;
 
     public CachedFixedSizeList(int size) {
+        this(size, false);
+    }
+
+    public CachedFixedSizeList(int size, boolean concurrent) {
         this.size = size;
+        this.shared_data = concurrent ? new AtomicReferenceArray<>(size) : null;
     }
 
     @Override
@@ -25,8 +33,23 @@ public abstract class CachedFixedSizeList<T> extends AbstractList<T> {
         return arr;
     }
 
+    private T getShared(int index) {
+        T value = shared_data.get(index);
+        if (value != null) return value;
+        value = Objects.requireNonNull(compute(index));
+        // Several threads may compute the same element,
+        //  but only the first published value is ever returned
+        if (shared_data.compareAndSet(index, null, value)) {
+            return value;
+        }
+        return shared_data.get(index);
+    }
+
     @Override
     public T get(int index) {
+        if (shared_data != null) {
+            return getShared(index);
+        }
         T[] cache = getCache();
         T value = cache[index];
         if (value != null) return value;
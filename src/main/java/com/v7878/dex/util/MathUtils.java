@@ -55,4 +55,23 @@ public class MathUtils {
         int shift = 64 - width;
         return (value << shift) >> shift;
     }
+
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * Computes the Adler-32 checksum of the concatenation of two byte sequences
+     * from their separate checksums, the same as adler32_combine in zlib
+     */
+    public static int adler32Combine(int adler1, int adler2, long length2) {
+        int rem = (int) (length2 % ADLER_BASE);
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= ((long) ADLER_BASE << 1)) sum2 -= ((long) ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return (int) (sum1 | (sum2 << 16));
+    }
 }
@@ -0,0 +1,59 @@
+package com.v7878.dex.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+public class ParallelUtils {
+    // Enough chunks to balance the load, but not so many that scheduling dominates
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    public interface RangeConsumer {
+        void accept(int from, int to);
+    }
+
+    public static int chunkSize(int count) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        return Math.max(MIN_CHUNK_SIZE, count / (threads * CHUNKS_PER_THREAD) + 1);
+    }
+
+    public static int chunkCount(int count, int chunk_size) {
+        return (count + chunk_size - 1) / chunk_size;
+    }
+
+    public static void submitRanges(List<CompletableFuture<Void>> tasks, int count,
+                                    int chunk_size, Executor executor, RangeConsumer consumer) {
+        Objects.requireNonNull(executor);
+        for (int start = 0; start < count; start += chunk_size) {
+            int from = start;
+            int to = Math.min(count, start + chunk_size);
+            tasks.add(CompletableFuture.runAsync(() -> consumer.accept(from, to), executor));
+        }
+    }
+
+    public static void joinAll(List<CompletableFuture<Void>> tasks) {
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ex) {
+            // Rethrow the original exception, such as InvalidDexFile
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (ex.getCause() instanceof Error err) {
+                throw err;
+            }
+            throw ex;
+        }
+    }
+
+    public static void forEachRange(int count, int chunk_size,
+                                    Executor executor, RangeConsumer consumer) {
+        var tasks = new ArrayList<CompletableFuture<Void>>();
+        submitRanges(tasks, count, chunk_size, executor, consumer);
+        joinAll(tasks);
+    }
+}
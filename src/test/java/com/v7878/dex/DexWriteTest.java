@@ -0,0 +1,94 @@
+package com.v7878.dex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.v7878.dex.immutable.Dex;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class DexWriteTest {
+    private static final ReadOptions READ = ReadOptions.defaultOptions()
+            .withTargetApi(35).withTargetForArt(true).withChecksumVerification(true);
+    private static final WriteOptions WRITE = WriteOptions.defaultOptions()
+            .withTargetApi(35).withTargetForArt(true);
+
+    @Test
+    public void testRoundTrip() {
+        Dex dex = TestDexes.generate("a", 300);
+        byte[] data = DexIO.write(WRITE, dex);
+        Dex back = DexIO.read(READ, data, 0, 0);
+        assertEquals(dex, back);
+        assertArrayEquals(data, DexIO.write(WRITE, back));
+    }
+
+    // Large enough for the file variants to write pages back and read them again
+    @Test
+    public void testStreams() throws IOException {
+        Dex dex = TestDexes.generate("a", 4000);
+        byte[] expected = DexIO.write(WRITE, dex);
+
+        var stream = new ByteArrayOutputStream();
+        DexIO.write(WRITE, dex, stream);
+        assertArrayEquals(expected, stream.toByteArray());
+
+        stream.reset();
+        DexIO.write(WRITE, dex, Channels.newChannel(stream));
+        assertArrayEquals(expected, stream.toByteArray());
+
+        Path path = Files.createTempFile("dex", ".dex");
+        try {
+            // Old content must be replaced, not patched
+            Files.write(path, new byte[expected.length + 100]);
+            DexIO.write(WRITE, dex, path);
+            assertArrayEquals(expected, Files.readAllBytes(path));
+            assertEquals(dex, DexIO.read(READ, path));
+
+            // The channel variant writes from the current position
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+                DexIO.write(WRITE, dex, channel);
+                assertEquals(expected.length + 3, channel.position());
+            }
+            byte[] written = Files.readAllBytes(path);
+            assertArrayEquals(expected, Arrays.copyOfRange(written, 3, written.length));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testContainerStreams() throws IOException {
+        var options = WRITE.withDexVersion(DexVersion.DEX041);
+        Dex first = TestDexes.generate("a", 3000);
+        Dex second = TestDexes.generate("b", 1000);
+        byte[] expected = DexIO.writeDexContainer(options, first, second);
+
+        var stream = new ByteArrayOutputStream();
+        DexIO.writeDexContainer(options, stream, first, second);
+        assertArrayEquals(expected, stream.toByteArray());
+
+        Path path = Files.createTempFile("dex", ".dex");
+        try {
+            DexIO.writeDexContainer(options, path, first, second);
+            assertArrayEquals(expected, Files.readAllBytes(path));
+            var back = DexIO.readDexContainer(READ, path);
+            assertEquals(2, back.length);
+            assertEquals(first, back[0]);
+            assertEquals(second, back[1]);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.v7878.dex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import com.v7878.dex.immutable.Dex;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParallelWriteTest {
+    private static final ReadOptions READ = ReadOptions.defaultOptions()
+            .withTargetApi(35).withTargetForArt(true);
+    private static final WriteOptions WRITE = WriteOptions.defaultOptions()
+            .withTargetApi(35).withTargetForArt(true);
+
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdown();
+    }
+
+    private static void assertSameOutput(WriteOptions options, Dex... data) {
+        byte[] expected = write(options.withParallelWrite(false), data);
+        assertArrayEquals(expected, write(options.withParallelWrite(true), data));
+        assertArrayEquals(expected, write(options.withParallelWrite(executor), data));
+    }
+
+    private static byte[] write(WriteOptions options, Dex... data) {
+        if (options.getDexVersion().isDexContainer()) {
+            return DexIO.writeDexContainer(options, data);
+        }
+        return DexIO.write(options, data[0]);
+    }
+
+    @Test
+    public void testGenerated() {
+        assertSameOutput(WRITE.withDexVersion(DexVersion.DEX039), TestDexes.generate("a", 300));
+    }
+
+    @Test
+    public void testRoundTripped() {
+        var options = WRITE.withDexVersion(DexVersion.DEX039);
+        byte[] data = DexIO.write(options, TestDexes.generate("a", 300));
+        assertSameOutput(options, DexIO.read(READ, data, 0, 0));
+    }
+
+    @Test
+    public void testCompact() {
+        var options = WRITE.withTargetApi(30).withDexVersion(DexVersion.CDEX001);
+        assertSameOutput(options, TestDexes.generate("a", 300));
+        byte[] data = DexIO.write(options, TestDexes.generate("b", 100));
+        assertSameOutput(options, DexIO.read(READ.withTargetApi(30), data, 0, 0));
+    }
+
+    @Test
+    public void testContainer() {
+        var options = WRITE.withDexVersion(DexVersion.DEX041);
+        Dex first = TestDexes.generate("a", 200);
+        Dex second = TestDexes.generate("b", 100);
+        assertSameOutput(options, first, second);
+        Dex[] back = DexIO.readDexContainer(READ, DexIO.writeDexContainer(options, first, second), 0);
+        assertSameOutput(options, back);
+    }
+}
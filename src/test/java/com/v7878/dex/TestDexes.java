@@ -0,0 +1,81 @@
+package com.v7878.dex;
+
+import static com.v7878.dex.DexConstants.ACC_PUBLIC;
+import static com.v7878.dex.DexConstants.ACC_STATIC;
+
+import com.v7878.dex.builder.ClassBuilder;
+import com.v7878.dex.builder.CodeBuilder;
+import com.v7878.dex.immutable.Annotation;
+import com.v7878.dex.immutable.AnnotationElement;
+import com.v7878.dex.immutable.ClassDef;
+import com.v7878.dex.immutable.Dex;
+import com.v7878.dex.immutable.FieldId;
+import com.v7878.dex.immutable.MethodId;
+import com.v7878.dex.immutable.TypeId;
+import com.v7878.dex.immutable.value.EncodedInt;
+import com.v7878.dex.immutable.value.EncodedString;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+final class TestDexes {
+    private TestDexes() {
+    }
+
+    private static final TypeId STRING = TypeId.of("Ljava/lang/String;");
+
+    // Classes with fields, annotations, debug info, switches and try blocks,
+    //  so that every section of the file is present
+    static Dex generate(String prefix, int count) {
+        var classes = new ArrayList<ClassDef>(count);
+        for (int c = 0; c < count; c++) {
+            int ci = c;
+            TypeId type = TypeId.of("L" + prefix + (c % 7) + "/C" + c + "\u00e9;");
+            TypeId superclass = c % 3 == 0 && c > 0 ?
+                    TypeId.of("L" + prefix + ((c - 1) % 7) + "/C" + (c - 1) + "\u00e9;") :
+                    TypeId.OBJECT;
+            classes.add(ClassBuilder.build(type, cb -> {
+                cb.withSuperClass(superclass).withFlags(ACC_PUBLIC).withSourceFile("C" + ci + ".java");
+                if (ci % 4 == 0) {
+                    cb.withInterfaces(TypeId.of("Ljava/lang/Runnable;"));
+                }
+                cb.withField("f" + ci, TypeId.I, ACC_PUBLIC | ACC_STATIC, EncodedInt.of(ci));
+                cb.withField("s" + ci, STRING, ACC_PUBLIC | ACC_STATIC, EncodedString.of("val" + ci));
+                cb.withField("g", TypeId.J, ACC_PUBLIC);
+                if (ci % 5 == 0) {
+                    cb.withAnnotations(Annotation.of(AnnotationVisibility.RUNTIME, TypeId.of("Lanno/A;"),
+                            AnnotationElement.of("value", EncodedInt.of(ci % 3))));
+                }
+                for (int m = 0; m < 4; m++) {
+                    int mi = m;
+                    cb.withMethod(mb -> mb.withName("m" + mi).withReturnType(TypeId.I)
+                            .withParameterTypes(TypeId.I, STRING)
+                            .withFlags(ACC_PUBLIC | ACC_STATIC)
+                            .withCode(6, b -> {
+                                Object start = new Object(), middle = new Object(), end = new Object();
+                                b.line(10 + mi).local(b.p(1), "s", STRING);
+                                b.label(start);
+                                b.const_string(0, "str" + (ci * 7 + mi) % 50 + "\u0430\u0000x");
+                                b.const_(1, ci * 1000 + mi);
+                                b.sget(2, FieldId.of(type, "f" + ci, TypeId.I));
+                                b.if_test(CodeBuilder.Test.LT, 1, 2, middle);
+                                b.invoke(CodeBuilder.InvokeKind.STATIC,
+                                        MethodId.of(STRING, "valueOf", STRING, TypeId.I), 1);
+                                b.move_result_object(0);
+                                b.line(20 + mi);
+                                b.label(middle);
+                                var table = new HashMap<Integer, Object>();
+                                for (int k = 0; k < 3 + mi; k++) {
+                                    table.put(k * (mi + 1), end);
+                                }
+                                b.switch_(b.p(0), table);
+                                b.label(end);
+                                b.try_catch(start, end, TypeId.of("Ljava/lang/RuntimeException;"), end);
+                                b.return_(1);
+                            }));
+                }
+            }));
+        }
+        return Dex.of(classes);
+    }
+}